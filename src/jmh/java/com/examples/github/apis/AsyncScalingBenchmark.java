@@ -0,0 +1,75 @@
+package com.examples.github.apis;
+
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RestApiExample#updateSingleFileAsync} as the per-repository in-flight
+ * limit grows, against a server that adds {@code latencyMillis} to every response. With a
+ * limit of 1 the batch degrades to serialized round trips.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncScalingBenchmark {
+    private static final int BATCH = 64;
+
+    @Param({"1", "4", "16", "64"})
+    public int maxInFlight;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+    private RestApiExample client;
+    private long revision;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        Map<String, byte[]> files = new HashMap<>();
+        for (int i = 0; i < BATCH; i++) {
+            files.put("files/" + i + ".txt", new byte[0]);
+        }
+        server.repository("octocat", "benchmark").commit("main", null, files, List.of(), "Seed benchmark files");
+
+        TransportConfig config = TransportConfig.builder()
+            .maxRequestsPerHost(BATCH)
+            .maxConcurrentCallsPerHost(0)
+            .build();
+        OkHttpClient transport = GitHubTransport.create(config, new ConnectionStats());
+        client = new RestApiExample(TokenPool.of("benchmark-token"), transport, maxInFlight, server.apiUrl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void updateBatch() {
+        CompletableFuture<?>[] updates = new CompletableFuture<?>[BATCH];
+        long batch = revision++;
+        for (int i = 0; i < BATCH; i++) {
+            updates[i] = client.updateSingleFileAsync("octocat", "benchmark", "files/" + i + ".txt", "main",
+                "content " + i + " of batch " + batch);
+        }
+        CompletableFuture.allOf(updates).join();
+    }
+}
@@ -0,0 +1,71 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Large changesets through {@link GraphQLApiExample#createAtomicCommits}: a 1k-file changeset
+ * and a 100 MB one, split into commits of at most {@code maxBytesPerCommit}. The in-process
+ * fake server decodes every mutation, so GC profiler figures here include its allocation; see
+ * {@link RequestCodecBenchmark} for the client's own mutation encoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChunkingBenchmark {
+
+    /**
+     * {@code <files>x<bytes per file>}.
+     */
+    @Param({"1000x1024", "100x1048576"})
+    public String changeset;
+
+    @Param({"26214400"})
+    public long maxBytesPerCommit;
+
+    private FakeGitHubServer server;
+    private GraphQLApiExample client;
+    private FileChange[] changes;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeGitHubServer.start();
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        client = new GraphQLApiExample(TokenPool.of("benchmark-token"), transport, server.graphqlUrl());
+
+        String[] shape = changeset.split("x");
+        int files = Integer.parseInt(shape[0]);
+        byte[] content = new byte[Integer.parseInt(shape[1])];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        changes = new FileChange[files];
+        for (int i = 0; i < files; i++) {
+            changes[i] = new FileChange("generated/file-" + i + ".bin", content);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public List<String> createAtomicCommits() throws IOException {
+        return client.createAtomicCommits("octocat", "benchmark", "main", "Benchmark changeset",
+            changes, maxBytesPerCommit);
+    }
+}
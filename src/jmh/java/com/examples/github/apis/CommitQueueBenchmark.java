@@ -0,0 +1,81 @@
+package com.examples.github.apis;
+
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a burst of writes to one branch, {@code WRITES} writes over {@code PATHS}
+ * paths, as a commit per write versus through {@link CoalescingCommitQueue}, against a server
+ * that adds {@code latencyMillis} to every response. Commit-per-write is sent serially, as it
+ * must be to avoid stale-head conflicts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommitQueueBenchmark {
+    private static final int WRITES = 64;
+    private static final int PATHS = 16;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    @Param({"50"})
+    public int windowMillis;
+
+    private FakeGitHubServer server;
+    private GraphQLApiExample client;
+    private CoalescingCommitQueue queue;
+    private long revision;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        client = new GraphQLApiExample(TokenPool.of("benchmark-token"), transport, server.graphqlUrl());
+        queue = new CoalescingCommitQueue(client, Duration.ofMillis(windowMillis), WRITES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        queue.close();
+        if (queue.getSubmitted() > 0) {
+            System.out.printf("%nqueue: %s%n", queue);
+        }
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITES)
+    public void commitPerWrite() throws IOException {
+        for (int i = 0; i < WRITES; i++) {
+            client.updateSingleFile("octocat", "benchmark", path(i), "main", "content " + revision++);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITES)
+    public void coalesced() {
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[WRITES];
+        for (int i = 0; i < WRITES; i++) {
+            writes[i] = queue.submit("octocat", "benchmark", "main", path(i), "content " + revision++);
+        }
+        CompletableFuture.allOf(writes).join();
+    }
+
+    private static String path(int write) {
+        return "files/" + (write % PATHS) + ".txt";
+    }
+}
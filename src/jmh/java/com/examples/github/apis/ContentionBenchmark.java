@@ -0,0 +1,99 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.apis.GraphQLApiExample.StaleHeadException;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Eight writers committing to one branch through {@link GraphQLApiExample#createAtomicCommit},
+ * failing on the first stale-head conflict versus retrying with {@link ConflictRetry}.
+ * {@code committed} and {@code conflicted} are reported per second; the retry counters are
+ * printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+    public enum Mode {
+        FAIL_FAST,
+        RETRY
+    }
+
+    @Param({"FAIL_FAST", "RETRY"})
+    public Mode mode;
+
+    @Param({"10"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+    private GraphQLApiExample client;
+    private ConflictRetry retry;
+    private final AtomicInteger writers = new AtomicInteger();
+
+    /**
+     * Per-writer outcome counts, summed by JMH across threads.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long committed;
+        public long conflicted;
+    }
+
+    /**
+     * Each writer updates its own file, so conflicts come only from the shared branch head.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        String path;
+        long revision;
+
+        @Setup
+        public void setUp(ContentionBenchmark benchmark) {
+            path = "writers/" + benchmark.writers.getAndIncrement() + ".txt";
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        retry = mode == Mode.RETRY ? new ConflictRetry(10, Duration.ofMillis(10), Duration.ofMillis(500)) : null;
+        client = new GraphQLApiExample(TokenPool.of("benchmark-token"), transport, server.graphqlUrl(), retry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (retry != null) {
+            System.out.printf("%nconflict retry: %s%n", retry);
+        }
+        server.close();
+    }
+
+    @Benchmark
+    public void commit(Writer writer, Outcomes outcomes) throws IOException {
+        try {
+            client.createAtomicCommit("octocat", "benchmark", "main", "Contended write",
+                new FileChange[] { new FileChange(writer.path, "content " + writer.revision++) });
+            outcomes.committed++;
+        } catch (StaleHeadException e) {
+            outcomes.conflicted++;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.examples.github.apis;
+
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete single-file update (SHA lookup plus write, or repository query plus commit
+ * mutation) through each client against {@link FakeGitHubServer}, so the numbers reflect
+ * client-side cost: request building, serialization, parsing and library overhead. The fake
+ * runs in-process, so its own allocation is included in the GC profiler figures.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+    private static final String PATH = "docs/README.md";
+
+    /**
+     * The three client strategies under comparison.
+     */
+    public enum Strategy {
+        KOHSUKE,
+        REST,
+        GRAPHQL;
+
+        FileUpdater create(TokenPool tokens, OkHttpClient transport, FakeGitHubServer server) throws IOException {
+            return switch (this) {
+                case KOHSUKE -> new KohsukeGitHubExample(tokens, transport, server.apiUrl());
+                case REST -> new RestApiExample(tokens, transport, 4, server.apiUrl());
+                case GRAPHQL -> new GraphQLApiExample(tokens, transport, server.graphqlUrl());
+            };
+        }
+    }
+
+    @Param({"KOHSUKE", "REST", "GRAPHQL"})
+    public Strategy strategy;
+
+    @Param({"1024"})
+    public int fileBytes;
+
+    private FakeGitHubServer server;
+    private FileUpdater updater;
+    private String content;
+    private long revision;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.start();
+        content = "y".repeat(fileBytes);
+        server.repository("octocat", "benchmark").commit("main", null,
+            Map.of(PATH, content.getBytes(StandardCharsets.UTF_8)), List.of(), "Seed benchmark file");
+
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        updater = strategy.create(TokenPool.of("benchmark-token"), transport, server);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String updateSingleFile() throws IOException {
+        // New content every time so no client skips the write as unchanged
+        return updater.updateSingleFile("octocat", "benchmark", PATH, "main", content + revision++);
+    }
+}
@@ -0,0 +1,85 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.BatchUpdater.ExecutionMode;
+import com.examples.github.apis.BatchUpdater.FileUpdate;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link BatchUpdater} with blocking REST updates spread over many repositories,
+ * comparing a platform thread pool with virtual threads. The transport's per-host guard caps
+ * concurrent calls at {@code maxCallsPerHost} in both modes, as it would against GitHub.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+    private static final int REPOSITORIES = 128;
+    private static final int UPDATES = 512;
+
+    @Param({"PLATFORM_THREADS", "VIRTUAL_THREADS"})
+    public ExecutionMode mode;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    @Param({"32"})
+    public int maxCallsPerHost;
+
+    private FakeGitHubServer server;
+    private RestApiExample client;
+    private BatchUpdater batchUpdater;
+    private long revision;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        for (int i = 0; i < UPDATES; i++) {
+            server.repository("octocat", "repo-" + (i % REPOSITORIES))
+                .commit("main", null, Map.of(path(i), new byte[0]), List.of(), "Seed benchmark file");
+        }
+        TransportConfig config = TransportConfig.builder()
+            .maxIdleConnections(maxCallsPerHost)
+            .maxConcurrentCallsPerHost(maxCallsPerHost)
+            .build();
+        OkHttpClient transport = GitHubTransport.create(config, new ConnectionStats());
+        client = new RestApiExample(TokenPool.of("benchmark-token"), transport, 4, server.apiUrl());
+        batchUpdater = new BatchUpdater(mode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(UPDATES)
+    public List<BatchUpdater.Result> updateAll() throws InterruptedException {
+        // New content every round so no update is skipped as unchanged
+        long round = revision++;
+        List<FileUpdate> updates = new ArrayList<>(UPDATES);
+        for (int i = 0; i < UPDATES; i++) {
+            updates.add(new FileUpdate("octocat", "repo-" + (i % REPOSITORIES), "main", path(i),
+                "content " + i + " of round " + round));
+        }
+        return batchUpdater.updateAll(updates, client);
+    }
+
+    private static String path(int update) {
+        return "files/" + update + ".txt";
+    }
+}
@@ -0,0 +1,87 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One multi-file commit through {@link RestApiExample#createAtomicCommit} (a blob upload per
+ * file, bounded per repository, then tree, commit and ref update) versus a single
+ * {@link GraphQLApiExample#createAtomicCommit} mutation. Every invocation changes every file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GitDataCommitBenchmark {
+
+    public enum Api {
+        GIT_DATA,
+        GRAPHQL
+    }
+
+    @Param({"GIT_DATA", "GRAPHQL"})
+    public Api api;
+
+    @Param({"10", "100", "1000"})
+    public int files;
+
+    @Param({"1024"})
+    public int bytesPerFile;
+
+    @Param({"10"})
+    public int latencyMillis;
+
+    @Param({"8"})
+    public int maxBlobUploads;
+
+    private FakeGitHubServer server;
+    private RestApiExample rest;
+    private GraphQLApiExample graphql;
+    private long revision;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        TokenPool tokens = TokenPool.of("benchmark-token");
+        rest = new RestApiExample(tokens, transport, 4, server.apiUrl(), maxBlobUploads);
+        graphql = new GraphQLApiExample(tokens, transport, server.graphqlUrl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String commit() throws IOException {
+        FileChange[] changes = changeset(revision++);
+        return api == Api.GIT_DATA
+            ? rest.createAtomicCommit("octocat", "benchmark", "main", "Benchmark changeset", changes)
+            : graphql.createAtomicCommit("octocat", "benchmark", "main", "Benchmark changeset", changes);
+    }
+
+    private FileChange[] changeset(long revision) {
+        FileChange[] changes = new FileChange[files];
+        for (int i = 0; i < files; i++) {
+            byte[] content = new byte[bytesPerFile];
+            content[0] = (byte) revision;
+            content[1] = (byte) (revision >> 8);
+            content[2] = (byte) i;
+            changes[i] = new FileChange("generated/dir-" + (i % 10) + "/file-" + i + ".bin", content);
+        }
+        return changes;
+    }
+}
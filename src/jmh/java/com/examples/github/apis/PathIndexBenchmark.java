@@ -0,0 +1,112 @@
+package com.examples.github.apis;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Path to blob SHA lookups in a {@code HashMap<String, String>} versus a {@link PathIndex}, over
+ * monorepo-like paths. The heap retained by each structure, measured after a full GC, is printed
+ * at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class PathIndexBenchmark {
+
+    public enum Structure {
+        HASH_MAP,
+        PATH_INDEX
+    }
+
+    @Param({"HASH_MAP", "PATH_INDEX"})
+    public Structure structure;
+
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private String[] paths;
+    /** Kept reachable so it counts on both sides of the heap measurement. */
+    private String[] shas;
+    private Map<String, String> map;
+    private PathIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        paths = new String[entries];
+        shas = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            paths[i] = String.format("services/service-%d/src/main/java/com/example/module%d/Class%d.java",
+                i % 200, (i / 200) % 50, i);
+            shas[i] = String.format("%016x%016x%08x", random.nextLong(), random.nextLong(), random.nextInt());
+        }
+
+        long before = usedHeap();
+        if (structure == Structure.HASH_MAP) {
+            map = new HashMap<>();
+            for (int i = 0; i < entries; i++) {
+                // Fresh strings, as if parsed from a response
+                map.put(new String(paths[i].toCharArray()), new String(shas[i].toCharArray()));
+            }
+        } else {
+            PathIndex.Builder builder = PathIndex.builder();
+            for (int i = 0; i < entries; i++) {
+                builder.add(paths[i], shas[i]);
+            }
+            index = builder.build();
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%n%s with %d entries retains ~%.1f MB (%.0f bytes per entry)%n",
+            structure, entries, retained / 1e6, retained / (double) entries);
+
+        // Shuffle the lookup order so the benchmark does not walk the structure sequentially
+        for (int i = entries - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String path = paths[i];
+            paths[i] = paths[j];
+            paths[j] = path;
+        }
+    }
+
+    @Benchmark
+    public String lookup() {
+        String path = paths[next++ % entries];
+        return structure == Structure.HASH_MAP ? map.get(path) : index.blobSha(path);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int enumeratePrefix() {
+        String prefix = "services/service-" + (next++ % 200) + "/src/main/java/com/example/module7/";
+        AtomicInteger count = new AtomicInteger();
+        if (structure == Structure.HASH_MAP) {
+            map.forEach((path, sha) -> {
+                if (path.startsWith(prefix)) {
+                    count.incrementAndGet();
+                }
+            });
+        } else {
+            index.forEachWithPrefix(prefix, (path, sha) -> count.incrementAndGet());
+        }
+        return count.get();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,143 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.http.TokenPool;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side request building, JSON encoding/decoding and base64 encoding, without any I/O.
+ * Bodies are written to a discarding sink so that, with {@code -prof gc}, allocation per
+ * operation shows what each approach keeps in memory. The {@code *Tree} variants are the
+ * string- and tree-based approaches the clients used before streaming, kept as a baseline.
+ * Kohsuke builds its requests internally and is only covered by {@link EndToEndBenchmark}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestCodecBenchmark {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String MUTATION =
+        "mutation($input: CreateCommitOnBranchInput!) { createCommitOnBranch(input: $input) { commit { oid url } } }";
+    private static final String HEAD_OID = "0123456789abcdef0123456789abcdef01234567";
+
+    @Param({"1024", "1048576"})
+    public int contentBytes;
+
+    private final Gson gson = new Gson();
+    private RestApiExample rest;
+    private String content;
+    private byte[] contentUtf8;
+    private FileChange[] changes;
+    private byte[] contentsResponse;
+
+    @Setup
+    public void setUp() {
+        rest = new RestApiExample(TokenPool.of("benchmark-token"), new OkHttpClient(), 4, "http://localhost");
+        content = "z".repeat(contentBytes);
+        contentUtf8 = content.getBytes(StandardCharsets.UTF_8);
+        changes = new FileChange[] {new FileChange("docs/README.md", content)};
+
+        // A contents API response carries the whole file as base64 next to the SHA we need
+        JsonObject response = new JsonObject();
+        response.addProperty("type", "file");
+        response.addProperty("encoding", "base64");
+        response.addProperty("size", contentBytes);
+        response.addProperty("path", "docs/README.md");
+        response.addProperty("content", Base64.getMimeEncoder().encodeToString(contentUtf8));
+        response.addProperty("sha", HEAD_OID);
+        contentsResponse = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long restUpdateRequest() throws IOException {
+        Request request = rest.updateRequest("octocat", "benchmark", "docs/README.md", "main", contentUtf8, HEAD_OID);
+        return writeToBlackhole(request.body());
+    }
+
+    @Benchmark
+    public long graphqlMutationStreaming() throws IOException {
+        return writeToBlackhole(new CommitMutationBody(MUTATION, "octocat/benchmark", "main",
+            "Benchmark commit", HEAD_OID, changes));
+    }
+
+    @Benchmark
+    public long graphqlMutationTree() throws IOException {
+        JsonObject addition = new JsonObject();
+        addition.addProperty("path", "docs/README.md");
+        addition.addProperty("contents", Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8)));
+        JsonArray additions = new JsonArray();
+        additions.add(addition);
+        JsonObject fileChanges = new JsonObject();
+        fileChanges.add("additions", additions);
+
+        JsonObject branch = new JsonObject();
+        branch.addProperty("repositoryNameWithOwner", "octocat/benchmark");
+        branch.addProperty("branchName", "main");
+        JsonObject message = new JsonObject();
+        message.addProperty("headline", "Benchmark commit");
+        JsonObject input = new JsonObject();
+        input.add("branch", branch);
+        input.add("message", message);
+        input.add("fileChanges", fileChanges);
+        input.addProperty("expectedHeadOid", HEAD_OID);
+        JsonObject variables = new JsonObject();
+        variables.add("input", input);
+        JsonObject body = new JsonObject();
+        body.addProperty("query", MUTATION);
+        body.add("variables", variables);
+
+        return writeToBlackhole(RequestBody.create(gson.toJson(body), JSON));
+    }
+
+    @Benchmark
+    public long base64Streaming() throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole());
+             OutputStream base64 = Base64.getEncoder().wrap(sink.outputStream())) {
+            changes[0].getSource().writeTo(base64);
+            return sink.getBuffer().size();
+        }
+    }
+
+    @Benchmark
+    public String base64String() {
+        return Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String decodeFileShaStreaming() throws IOException {
+        ResponseBody body = ResponseBody.create(contentsResponse, JSON);
+        return JsonFields.requireString(JsonFields.extract(body, "sha"), "sha");
+    }
+
+    @Benchmark
+    public String decodeFileShaTree() throws IOException {
+        ResponseBody body = ResponseBody.create(contentsResponse, JSON);
+        return gson.fromJson(body.string(), JsonObject.class).get("sha").getAsString();
+    }
+
+    private static long writeToBlackhole(RequestBody body) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+            return body.contentLength();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.EndToEndBenchmark.Strategy;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first write: building a transport and client, then one file update, in a fresh JVM
+ * per sample so class loading and connection setup are included. The server adds
+ * {@code latencyMillis} per response, so every round trip made before the write shows up.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    private static final String PATH = "docs/README.md";
+
+    @Param({"KOHSUKE", "REST", "GRAPHQL"})
+    public Strategy strategy;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        server.repository("octocat", "benchmark")
+            .commit("main", null, Map.of(PATH, new byte[0]), List.of(), "Seed benchmark file");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String firstWrite() throws IOException {
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        FileUpdater updater = strategy.create(TokenPool.of("benchmark-token"), transport, server);
+        return updater.updateSingleFile("octocat", "benchmark", PATH, "main", "first write");
+    }
+}
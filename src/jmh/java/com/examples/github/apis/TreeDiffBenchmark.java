@@ -0,0 +1,108 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-committing a generated directory of {@code files} files of which only {@code changed}
+ * differ from the branch, through {@link GraphQLApiExample#createAtomicCommit} as is versus with
+ * a {@link TreeDiff} pre-step. Request and response body bytes per commit are printed at the end
+ * of each trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeDiffBenchmark {
+
+    public enum Mode {
+        FULL,
+        TREE_DIFF
+    }
+
+    @Param({"FULL", "TREE_DIFF"})
+    public Mode mode;
+
+    @Param({"2000"})
+    public int files;
+
+    @Param({"3"})
+    public int changed;
+
+    @Param({"4096"})
+    public int bytesPerFile;
+
+    @Param({"10"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+    private ConnectionStats stats;
+    private GraphQLApiExample client;
+    private TreeDiff treeDiff;
+    private long commits;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        Map<String, byte[]> seed = new HashMap<>();
+        for (int i = 0; i < files; i++) {
+            seed.put(path(i), content(i, 0));
+        }
+        server.repository("octocat", "benchmark").commit("main", null, seed, List.of(), "Seed generated files");
+
+        stats = new ConnectionStats();
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), stats);
+        TokenPool tokens = TokenPool.of("benchmark-token");
+        client = new GraphQLApiExample(tokens, transport, server.graphqlUrl());
+        treeDiff = new TreeDiff(tokens, transport, server.apiUrl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%d commits, per commit: %d bytes sent, %d bytes received; tree diff: %s%n",
+            commits, stats.getRequestBodyBytes() / Math.max(1, commits),
+            stats.getResponseBodyBytes() / Math.max(1, commits), treeDiff);
+        server.close();
+    }
+
+    @Benchmark
+    public String commit() throws IOException {
+        long revision = ++commits;
+        FileChange[] changes = new FileChange[files];
+        for (int i = 0; i < files; i++) {
+            changes[i] = new FileChange(path(i), content(i, i < changed ? revision : 0));
+        }
+        return mode == Mode.FULL
+            ? client.createAtomicCommit("octocat", "benchmark", "main", "Regenerate", changes)
+            : client.createAtomicCommit("octocat", "benchmark", "main", "Regenerate", changes, treeDiff);
+    }
+
+    private String path(int i) {
+        return "generated/dir-" + (i % 20) + "/file-" + i + ".txt";
+    }
+
+    private byte[] content(int i, long revision) {
+        byte[] content = new byte[bytesPerFile];
+        for (int j = 0; j < content.length; j++) {
+            content[j] = (byte) ('a' + (i + j) % 26);
+        }
+        String stamp = i + ":" + revision;
+        System.arraycopy(stamp.getBytes(), 0, content, 0, stamp.length());
+        return content;
+    }
+}
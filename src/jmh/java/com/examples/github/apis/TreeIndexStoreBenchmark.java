@@ -0,0 +1,95 @@
+package com.examples.github.apis;
+
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to the first SHA lookup of a freshly started {@link TreeSnapshotCache} on a
+ * {@code files}-file branch: listing the tree versus opening the index a previous process
+ * persisted to a {@link TreeIndexStore}. The persisted file is in the page cache, as it is when
+ * a worker restarts on the same machine.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeIndexStoreBenchmark {
+
+    public enum Startup {
+        LIST,
+        OPEN_PERSISTED
+    }
+
+    @Param({"LIST", "OPEN_PERSISTED"})
+    public Startup startup;
+
+    @Param({"10000", "100000"})
+    public int files;
+
+    @Param({"20"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+    private OkHttpClient transport;
+    private TokenPool tokens;
+    private Path directory;
+    private TreeIndexStore store;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        Map<String, byte[]> seed = new HashMap<>();
+        for (int i = 0; i < files; i++) {
+            seed.put(path(i), new byte[0]);
+        }
+        server.repository("octocat", "benchmark").commit("main", null, seed, List.of(), "Seed files");
+
+        transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        tokens = TokenPool.of("benchmark-token");
+        directory = Files.createTempDirectory("tree-index-benchmark");
+        if (startup == Startup.OPEN_PERSISTED) {
+            store = new TreeIndexStore(directory);
+            new TreeSnapshotCache(tokens, transport, server.apiUrl(), store).load("octocat", "benchmark", "main");
+            System.out.printf("%nPersisted index of %d files: %d bytes%n",
+                files, Files.size(store.file("octocat", "benchmark", "main")));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public String firstLookup() throws IOException {
+        TreeSnapshotCache cache = new TreeSnapshotCache(tokens, transport, server.apiUrl(), store);
+        return cache.blobSha("octocat", "benchmark", "main", path(files / 2));
+    }
+
+    private static String path(int i) {
+        return "services/service-" + (i % 100) + "/src/module-" + (i % 7) + "/File" + i + ".java";
+    }
+}
@@ -0,0 +1,84 @@
+package com.examples.github.apis;
+
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updating every file of a {@code files}-file directory one by one through
+ * {@link RestApiExample#updateSingleFile}, with a contents GET per file for the current SHA versus
+ * SHAs served by a {@link TreeSnapshotCache}. Server requests per batch are printed at the end of
+ * each trial.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TreeSnapshotBenchmark {
+
+    public enum Lookup {
+        CONTENTS_GET,
+        TREE_SNAPSHOT
+    }
+
+    @Param({"CONTENTS_GET", "TREE_SNAPSHOT"})
+    public Lookup lookup;
+
+    @Param({"1000"})
+    public int files;
+
+    @Param({"5"})
+    public int latencyMillis;
+
+    private FakeGitHubServer server;
+    private RestApiExample client;
+    private TreeSnapshotCache treeSnapshots;
+    private long batches;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().latency(Duration.ofMillis(latencyMillis)).start();
+        Map<String, byte[]> seed = new HashMap<>();
+        for (int i = 0; i < files; i++) {
+            seed.put(path(i), new byte[0]);
+        }
+        server.repository("octocat", "benchmark").commit("main", null, seed, List.of(), "Seed files");
+
+        OkHttpClient transport = GitHubTransport.create(TransportConfig.builder().build(), new ConnectionStats());
+        TokenPool tokens = TokenPool.of("benchmark-token");
+        treeSnapshots = lookup == Lookup.TREE_SNAPSHOT ? new TreeSnapshotCache(tokens, transport, server.apiUrl()) : null;
+        client = new RestApiExample(tokens, transport, 4, server.apiUrl(), 8, treeSnapshots);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%d requests per batch of %d updates; tree snapshots: %s%n",
+            server.getRequests() / Math.max(1, batches), files, treeSnapshots);
+        server.close();
+    }
+
+    @Benchmark
+    public void updateAll() throws IOException {
+        long revision = ++batches;
+        for (int i = 0; i < files; i++) {
+            client.updateSingleFile("octocat", "benchmark", path(i), "main", "revision " + revision);
+        }
+    }
+
+    private static String path(int i) {
+        return "config/service-" + (i % 50) + "/file-" + i + ".yaml";
+    }
+}
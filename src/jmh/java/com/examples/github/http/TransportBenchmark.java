@@ -0,0 +1,75 @@
+package com.examples.github.http;
+
+import com.examples.github.apis.RestApiExample;
+import com.examples.github.fake.FakeGitHubServer;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of a REST update over HTTPS with one shared transport versus a fresh
+ * connection pool per client instance (the behaviour before {@link GitHubTransport}). Sample
+ * mode reports p50/p90/p99 per update; the TLS handshakes per update are printed at the end of
+ * each trial. The JDK stand-in server speaks HTTP/1.1 only, so HTTP/2 multiplexing is not covered.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+    public enum Mode {
+        SHARED,
+        PER_INSTANCE
+    }
+
+    @Param({"SHARED", "PER_INSTANCE"})
+    public Mode mode;
+
+    private FakeGitHubServer server;
+    private ConnectionStats stats;
+    private TokenPool tokens;
+    private OkHttpClient shared;
+    private long updates;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = FakeGitHubServer.builder().https(true).start();
+        server.repository("octocat", "benchmark")
+            .commit("main", null, Map.of("docs/README.md", new byte[0]), List.of(), "Seed benchmark file");
+        stats = new ConnectionStats();
+        tokens = TokenPool.of("benchmark-token");
+        shared = transport();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s: %.3f TLS handshakes per update (%s)%n",
+            mode, updates == 0 ? 0.0 : (double) stats.getTlsHandshakes() / updates, stats);
+        server.close();
+    }
+
+    @Benchmark
+    public String update() throws IOException {
+        OkHttpClient transport = mode == Mode.SHARED ? shared : transport();
+        try {
+            updates++;
+            return new RestApiExample(tokens, transport, 4, server.apiUrl())
+                .updateSingleFile("octocat", "benchmark", "docs/README.md", "main", "content " + updates);
+        } finally {
+            if (transport != shared) {
+                transport.connectionPool().evictAll();
+            }
+        }
+    }
+
+    private OkHttpClient transport() {
+        return server.trust(GitHubTransport.create(TransportConfig.builder().build(), stats));
+    }
+}
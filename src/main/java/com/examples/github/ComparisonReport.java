@@ -0,0 +1,156 @@
+package com.examples.github;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency percentiles, throughput and errors of a comparison run, one row per strategy (and per
+ * parameter combination in a {@link ComparisonSweep}), printable as a table and exportable as
+ * CSV or JSON so results can be compared between releases. Exported latencies are in
+ * microseconds.
+ */
+public class ComparisonReport {
+    private static final String CSV_COLUMNS =
+        "strategy,count,errors,p50_us,p90_us,p99_us,p999_us,max_us,mean_us,throughput_per_s";
+
+    private final Map<String, Object> settings;
+    private final Instant startedAt = Instant.now();
+    private final List<Row> rows = new ArrayList<>();
+
+    public ComparisonReport(int warmupIterations, int iterations) {
+        this.settings = new LinkedHashMap<>();
+        settings.put("warmupIterations", warmupIterations);
+        settings.put("iterations", iterations);
+    }
+
+    /**
+     * @param settings run-wide settings, reported once ahead of the results
+     */
+    public ComparisonReport(Map<String, ?> settings) {
+        this.settings = new LinkedHashMap<>(settings);
+    }
+
+    public void add(LatencyStats stats) {
+        add(Map.of(), stats);
+    }
+
+    /**
+     * Adds a result measured with the given parameters, e.g. file count and concurrency.
+     * All rows of a report should have the same parameter names.
+     */
+    public void add(Map<String, ?> parameters, LatencyStats stats) {
+        rows.add(new Row(new LinkedHashMap<>(parameters), stats));
+    }
+
+    public List<LatencyStats> getResults() {
+        return rows.stream().map(Row::stats).toList();
+    }
+
+    public void log(Logger logger) {
+        logger.info("Latency in ms, {}", settings);
+        StringBuilder header = new StringBuilder(String.format("%-10s", "strategy"));
+        parameterNames().forEach(name -> header.append(String.format(" %12s", name)));
+        header.append(String.format(" %6s %6s %9s %9s %9s %9s %9s %9s",
+            "count", "errors", "p50", "p90", "p99", "p99.9", "max", "ops/s"));
+        logger.info(header.toString());
+        for (Row row : rows) {
+            LatencyStats stats = row.stats();
+            StringBuilder line = new StringBuilder(String.format("%-10s", stats.getStrategy()));
+            row.parameters().values().forEach(value -> line.append(String.format(" %12s", value)));
+            line.append(String.format(Locale.ROOT, " %6d %6d %9.3f %9.3f %9.3f %9.3f %9.3f %9.2f",
+                stats.getCount(), stats.getErrors(),
+                millis(stats.percentileMicros(50)), millis(stats.percentileMicros(90)),
+                millis(stats.percentileMicros(99)), millis(stats.percentileMicros(99.9)),
+                millis(stats.maxMicros()), stats.throughputPerSecond()));
+            logger.info(line.toString());
+        }
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            List<String> parameterNames = parameterNames();
+            writer.write(parameterNames.isEmpty() ? CSV_COLUMNS
+                : CSV_COLUMNS.replaceFirst(",", "," + String.join(",", parameterNames) + ","));
+            writer.write('\n');
+            for (Row row : rows) {
+                LatencyStats stats = row.stats();
+                StringBuilder parameters = new StringBuilder();
+                row.parameters().values().forEach(value -> parameters.append(value).append(','));
+                writer.write(String.format(Locale.ROOT, "%s,%s%d,%d,%d,%d,%d,%d,%d,%.1f,%.3f%n",
+                    stats.getStrategy(), parameters, stats.getCount(), stats.getErrors(),
+                    stats.percentileMicros(50), stats.percentileMicros(90), stats.percentileMicros(99),
+                    stats.percentileMicros(99.9), stats.maxMicros(), stats.meanMicros(),
+                    stats.throughputPerSecond()));
+            }
+        }
+    }
+
+    public void writeJson(Path file) throws IOException {
+        JsonObject report = new JsonObject();
+        report.addProperty("startedAt", startedAt.toString());
+        settings.forEach((name, value) -> report.add(name, json(value)));
+        JsonArray results = new JsonArray();
+        for (Row row : rows) {
+            LatencyStats stats = row.stats();
+            JsonObject latency = new JsonObject();
+            latency.addProperty("p50", stats.percentileMicros(50));
+            latency.addProperty("p90", stats.percentileMicros(90));
+            latency.addProperty("p99", stats.percentileMicros(99));
+            latency.addProperty("p99.9", stats.percentileMicros(99.9));
+            latency.addProperty("max", stats.maxMicros());
+            latency.addProperty("mean", stats.meanMicros());
+
+            JsonObject result = new JsonObject();
+            result.addProperty("strategy", stats.getStrategy());
+            row.parameters().forEach((name, value) -> result.add(name, json(value)));
+            result.addProperty("count", stats.getCount());
+            result.addProperty("errors", stats.getErrors());
+            result.addProperty("elapsedMillis", stats.getElapsed().toMillis());
+            result.addProperty("throughputPerSecond", stats.throughputPerSecond());
+            result.add("latencyMicros", latency);
+            results.add(result);
+        }
+        report.add("results", results);
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+        }
+    }
+
+    private List<String> parameterNames() {
+        return rows.isEmpty() ? List.of() : List.copyOf(rows.get(0).parameters().keySet());
+    }
+
+    private static JsonElement json(Object value) {
+        if (value instanceof Number number) {
+            return new JsonPrimitive(number);
+        }
+        if (value instanceof Boolean bool) {
+            return new JsonPrimitive(bool);
+        }
+        return new JsonPrimitive(String.valueOf(value));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private record Row(Map<String, Object> parameters, LatencyStats stats) {
+    }
+}
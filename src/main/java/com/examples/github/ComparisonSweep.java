@@ -0,0 +1,215 @@
+package com.examples.github;
+
+import com.examples.github.SweepConfig.Strategy;
+import com.examples.github.apis.FileUpdater;
+import com.examples.github.apis.GraphQLApiExample;
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.apis.KohsukeGitHubExample;
+import com.examples.github.apis.RestApiExample;
+import com.examples.github.fake.FakeGitHubServer;
+import com.examples.github.fake.FakeRepository;
+import com.examples.github.http.ConnectionStats;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.examples.github.http.TransportConfig;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-interactive comparison against an in-process {@link FakeGitHubServer}, measuring every
+ * combination in a {@link SweepConfig}.
+ * <p>
+ * One operation writes {@code fileCount} files of {@code payloadBytes} each: one
+ * {@code updateSingleFile} per file for Kohsuke and REST, one atomic commit for GraphQL.
+ * {@code concurrency} workers repeat it until the duration is up, spread round-robin over the
+ * repositories. Workers sharing a repository write disjoint files on the same branch, so
+ * GraphQL commits can fail with {@code STALE_DATA} there; like any other failure, that counts
+ * as an error.
+ */
+public class ComparisonSweep {
+    private static final Logger logger = LoggerFactory.getLogger(ComparisonSweep.class);
+
+    private final SweepConfig config;
+    private final AtomicLong revision = new AtomicLong();
+
+    public ComparisonSweep(SweepConfig config) {
+        this.config = config;
+    }
+
+    public ComparisonReport run() throws IOException, InterruptedException {
+        logger.info("Sweeping {}", config);
+        ComparisonReport report = new ComparisonReport(config.describe());
+        int maxConcurrency = Collections.max(config.getConcurrency());
+
+        FakeGitHubServer.Builder fake = FakeGitHubServer.builder()
+            .latency(config.getLatency())
+            .jitter(config.getJitter());
+        if (config.getFailureRate() > 0) {
+            fake.failureRate(config.getFailureRate(), 502);
+        }
+        try (FakeGitHubServer server = fake.start()) {
+            // Workers block on their calls, so the per-host guard must not cap them below the sweep
+            OkHttpClient transport = GitHubTransport.create(TransportConfig.builder()
+                .maxIdleConnections(maxConcurrency)
+                .maxConcurrentCallsPerHost(0)
+                .build(), new ConnectionStats());
+            TokenPool tokens = TokenPool.of("sweep-token");
+
+            for (Strategy strategy : config.getStrategies()) {
+                ChangesetWriter writer = createWriter(strategy, tokens, transport, server);
+                for (int fileCount : config.getFileCounts()) {
+                    for (int payloadBytes : config.getPayloadBytes()) {
+                        for (int concurrency : config.getConcurrency()) {
+                            Map<String, Object> parameters = new LinkedHashMap<>();
+                            parameters.put("fileCount", fileCount);
+                            parameters.put("payloadBytes", payloadBytes);
+                            parameters.put("concurrency", concurrency);
+
+                            LatencyStats stats = measure(server, strategy, writer, fileCount, payloadBytes, concurrency);
+                            logger.info("{} {}", parameters, stats);
+                            report.add(parameters, stats);
+                        }
+                    }
+                }
+            }
+        }
+        return report;
+    }
+
+    private LatencyStats measure(FakeGitHubServer server, Strategy strategy, ChangesetWriter writer,
+                                 int fileCount, int payloadBytes, int concurrency) throws InterruptedException {
+        // Fresh paths per combination, seeded up front because Kohsuke and REST only update files
+        String prefix = String.format("sweep/%s-%dx%d-c%d", strategy.name().toLowerCase(Locale.ROOT),
+            fileCount, payloadBytes, concurrency);
+        List<Worker> workers = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            String[] repository = config.getRepositories().get(w % config.getRepositories().size()).split("/");
+            List<String> paths = new ArrayList<>();
+            for (int f = 0; f < fileCount; f++) {
+                paths.add(prefix + "/worker-" + w + "/file-" + f + ".txt");
+            }
+            workers.add(new Worker(repository[0], repository[1], paths));
+        }
+        seed(server, workers, payloadBytes);
+
+        LatencyStats stats = new LatencyStats(strategy.name().toLowerCase(Locale.ROOT));
+        runFor(config.getWarmup(), workers, writer, payloadBytes, null);
+        long start = System.nanoTime();
+        runFor(config.getDuration(), workers, writer, payloadBytes, stats);
+        stats.setElapsed(Duration.ofNanos(System.nanoTime() - start));
+        return stats;
+    }
+
+    private void seed(FakeGitHubServer server, List<Worker> workers, int payloadBytes) {
+        for (Worker worker : workers) {
+            FakeRepository repository = server.repository(worker.owner(), worker.repo());
+            if (repository.head(config.getBranch()) == null) {
+                repository.createBranch(config.getBranch(), repository.getDefaultBranch());
+            }
+            Map<String, byte[]> files = new HashMap<>();
+            byte[] content = content(payloadBytes).getBytes(StandardCharsets.UTF_8);
+            worker.paths().forEach(path -> files.put(path, content));
+            try {
+                repository.commit(config.getBranch(), null, files, List.of(), "Seed sweep files");
+            } catch (FakeRepository.ConflictException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Runs all workers until {@code duration} is up, recording into {@code stats} unless it is
+     * {@code null} (warmup).
+     */
+    private void runFor(Duration duration, List<Worker> workers, ChangesetWriter writer, int payloadBytes,
+                        LatencyStats stats) throws InterruptedException {
+        if (duration.isZero()) {
+            return;
+        }
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Worker worker : workers) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long operationStart = System.nanoTime();
+                        try {
+                            writer.write(worker.owner(), worker.repo(), config.getBranch(), worker.paths(),
+                                content(payloadBytes));
+                            if (stats != null) {
+                                stats.recordLatency(System.nanoTime() - operationStart);
+                            }
+                        } catch (Exception e) {
+                            if (stats != null) {
+                                stats.recordError();
+                            }
+                            logger.debug("Sweep operation failed: {}", e.getMessage());
+                        }
+                    }
+                });
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Content of about {@code payloadBytes} that differs on every call, so no write is skipped
+     * as unchanged.
+     */
+    private String content(int payloadBytes) {
+        String header = "revision " + revision.incrementAndGet() + "\n";
+        return header + "x".repeat(Math.max(0, payloadBytes - header.length()));
+    }
+
+    private static ChangesetWriter createWriter(Strategy strategy, TokenPool tokens, OkHttpClient transport,
+                                                FakeGitHubServer server) throws IOException {
+        return switch (strategy) {
+            case KOHSUKE -> perFile(new KohsukeGitHubExample(tokens, transport, server.apiUrl()));
+            case REST -> perFile(new RestApiExample(tokens, transport, 4, server.apiUrl()));
+            case GRAPHQL -> {
+                GraphQLApiExample client = new GraphQLApiExample(tokens, transport, server.graphqlUrl());
+                yield (owner, repo, branch, paths, content) -> {
+                    FileChange[] changes = paths.stream()
+                        .map(path -> new FileChange(path, content))
+                        .toArray(FileChange[]::new);
+                    client.createAtomicCommit(owner, repo, branch, "Sweep update", changes);
+                };
+            }
+        };
+    }
+
+    private static ChangesetWriter perFile(FileUpdater updater) {
+        return (owner, repo, branch, paths, content) -> {
+            for (String path : paths) {
+                updater.updateSingleFile(owner, repo, path, branch, content);
+            }
+        };
+    }
+
+    /**
+     * Writes the same content to every path in one operation.
+     */
+    @FunctionalInterface
+    private interface ChangesetWriter {
+        void write(String owner, String repo, String branch, List<String> paths, String content) throws IOException;
+    }
+
+    private record Worker(String owner, String repo, List<String> paths) {
+    }
+}
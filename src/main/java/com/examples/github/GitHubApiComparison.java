@@ -1,21 +1,40 @@
 package com.examples.github;
 
 import com.examples.github.apis.GraphQLApiExample;
+import com.examples.github.apis.GraphQLApiExample.FileChange;
 import com.examples.github.apis.KohsukeGitHubExample;
 import com.examples.github.apis.RestApiExample;
+import com.examples.github.http.GitHubTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Scanner;
 
 /**
  * Main class to compare different GitHub API approaches for updating files
  * without checking out the entire repository.
+ * <p>
+ * Without arguments it prompts for a repository and measures each approach against GitHub.
+ * With {@code --key=value} arguments (see {@link SweepConfig}) it runs a {@link ComparisonSweep}
+ * against an in-process fake server without prompting and writes the results to a file.
  */
 public class GitHubApiComparison {
     private static final Logger logger = LoggerFactory.getLogger(GitHubApiComparison.class);
 
+    private static final int DEFAULT_WARMUP_ITERATIONS = 2;
+    private static final int DEFAULT_ITERATIONS = 10;
+    private static final Scanner STDIN = new Scanner(System.in);
+
     public static void main(String[] args) {
+        if (args.length > 0) {
+            runSweep(args);
+            return;
+        }
+
         logger.info("GitHub API Spike - Comparing different approaches");
         logger.info("================================================");
 
@@ -24,76 +43,174 @@ public class GitHubApiComparison {
         String repo = getInput("Enter repository name: ");
         String filePath = getInput("Enter file path to update (e.g., README.md): ");
         String branch = getInput("Enter branch name (default: main): ", "main");
+        int warmup = Integer.parseInt(getInput(
+            "Warmup iterations per approach (default: " + DEFAULT_WARMUP_ITERATIONS + "): ",
+            String.valueOf(DEFAULT_WARMUP_ITERATIONS)));
+        int iterations = Integer.parseInt(getInput(
+            "Measured iterations per approach (default: " + DEFAULT_ITERATIONS + "): ",
+            String.valueOf(DEFAULT_ITERATIONS)));
+        String export = getInput("Export results to .csv or .json file (default: none): ", "");
+
+        ComparisonReport report = new ComparisonReport(warmup, iterations);
 
         logger.info("\n--- Test 1: Kohsuke GitHub API (github-api) ---");
-        testKohsukeApi(token, owner, repo, filePath, branch);
+        addIfPresent(report, testKohsukeApi(token, owner, repo, filePath, branch, warmup, iterations));
 
         logger.info("\n--- Test 2: Direct REST API with OkHttp ---");
-        testRestApi(token, owner, repo, filePath, branch);
+        addIfPresent(report, testRestApi(token, owner, repo, filePath, branch, warmup, iterations));
 
         logger.info("\n--- Test 3: GraphQL API (for multi-file updates) ---");
-        testGraphQLApi(token, owner, repo, branch);
+        addIfPresent(report, testGraphQLApi(token, owner, repo, branch, warmup, iterations));
+
+        logger.info("\nShared transport: {}", GitHubTransport.stats());
+        if (GitHubTransport.etagCache() != null) {
+            logger.info("ETag cache: {}", GitHubTransport.etagCache());
+        }
+
+        logger.info("");
+        report.log(logger);
+        if (!export.isEmpty()) {
+            exportReport(report, Path.of(export));
+        }
 
         printEvaluationSummary();
     }
 
-    private static void testKohsukeApi(String token, String owner, String repo,
-                                       String filePath, String branch) {
+    private static void runSweep(String[] args) {
+        SweepConfig config;
         try {
-            KohsukeGitHubExample example = new KohsukeGitHubExample(token);
-
-            long startTime = System.currentTimeMillis();
-            String commitSha = example.updateSingleFile(
-                owner, repo, filePath, branch,
-                "Updated via Kohsuke API at " + System.currentTimeMillis()
-            );
-            long duration = System.currentTimeMillis() - startTime;
+            config = SweepConfig.fromArgs(args);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("✗ Invalid sweep configuration: {}", e.getMessage());
+            System.exit(2);
+            return;
+        }
 
-            logger.info("✓ Success! Commit SHA: {}", commitSha);
-            logger.info("  Duration: {}ms", duration);
-            logger.info("  Memory efficient: YES (no checkout required)");
-        } catch (Exception e) {
-            logger.error("✗ Failed: {}", e.getMessage());
+        try {
+            ComparisonReport report = new ComparisonSweep(config).run();
+            report.log(logger);
+            exportReport(report, config.getOutput());
+        } catch (IOException e) {
+            logger.error("✗ Sweep failed: {}", e.getMessage(), e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private static void testRestApi(String token, String owner, String repo,
-                                    String filePath, String branch) {
+    private static LatencyStats testKohsukeApi(String token, String owner, String repo, String filePath,
+                                               String branch, int warmup, int iterations) {
         try {
-            RestApiExample example = new RestApiExample(token);
+            KohsukeGitHubExample example = new KohsukeGitHubExample(token);
 
-            long startTime = System.currentTimeMillis();
-            String commitSha = example.updateSingleFile(
+            LatencyStats stats = measure("kohsuke", warmup, iterations, iteration -> example.updateSingleFile(
                 owner, repo, filePath, branch,
-                "Updated via REST API at " + System.currentTimeMillis()
-            );
-            long duration = System.currentTimeMillis() - startTime;
+                "Updated via Kohsuke API at " + System.currentTimeMillis() + " (run " + iteration + ")"
+            ));
 
-            logger.info("✓ Success! Commit SHA: {}", commitSha);
-            logger.info("  Duration: {}ms", duration);
+            logger.info("✓ {}", stats);
             logger.info("  Memory efficient: YES (no checkout required)");
-            logger.info("  Adaptability: HIGH (direct control over HTTP requests)");
+            return stats;
         } catch (Exception e) {
             logger.error("✗ Failed: {}", e.getMessage());
+            return null;
         }
     }
 
-    private static void testGraphQLApi(String token, String owner, String repo, String branch) {
-        try {
-            GraphQLApiExample example = new GraphQLApiExample(token);
+    private static LatencyStats testRestApi(String token, String owner, String repo, String filePath,
+                                            String branch, int warmup, int iterations) {
+        RestApiExample example = new RestApiExample(token);
 
-            logger.info("GraphQL is ideal for batch operations (multiple file updates)");
-            logger.info("Example: Updating 3 files in a single atomic commit");
+        LatencyStats stats = measure("rest", warmup, iterations, iteration -> example.updateSingleFile(
+            owner, repo, filePath, branch,
+            "Updated via REST API at " + System.currentTimeMillis() + " (run " + iteration + ")"
+        ));
 
-            long startTime = System.currentTimeMillis();
-            example.demonstrateMultiFileUpdate(owner, repo, branch);
-            long duration = System.currentTimeMillis() - startTime;
+        logger.info("✓ {}", stats);
+        logger.info("  Memory efficient: YES (no checkout required)");
+        logger.info("  Adaptability: HIGH (direct control over HTTP requests)");
+        return stats;
+    }
 
-            logger.info("  Duration: {}ms", duration);
-            logger.info("  Efficiency: HIGH (atomic multi-file commits)");
-        } catch (Exception e) {
-            logger.error("✗ GraphQL demo failed: {}", e.getMessage());
+    private static LatencyStats testGraphQLApi(String token, String owner, String repo, String branch,
+                                               int warmup, int iterations) {
+        GraphQLApiExample example = new GraphQLApiExample(token);
+
+        logger.info("GraphQL is ideal for batch operations (multiple file updates)");
+        logger.info("Example: Updating 3 files in a single atomic commit per iteration");
+
+        LatencyStats stats = measure("graphql", warmup, iterations, iteration -> {
+            String updatedAt = "\nUpdated at: " + System.currentTimeMillis() + " (run " + iteration + ")";
+            example.createAtomicCommit(owner, repo, branch, "Update multiple files atomically via GraphQL",
+                new FileChange[] {
+                    new FileChange("file1.txt", "Content of file 1" + updatedAt),
+                    new FileChange("file2.txt", "Content of file 2" + updatedAt),
+                    new FileChange("file3.txt", "Content of file 3" + updatedAt)
+                });
+        });
+
+        logger.info("✓ {}", stats);
+        logger.info("  Efficiency: HIGH (atomic multi-file commits)");
+        return stats;
+    }
+
+    /**
+     * Runs {@code warmup} unrecorded iterations, then records the latency of each of
+     * {@code iterations} measured ones. Failures count as errors and are not recorded.
+     */
+    static LatencyStats measure(String strategy, int warmup, int iterations, Operation operation) {
+        LatencyStats stats = new LatencyStats(strategy);
+        for (int i = 0; i < warmup; i++) {
+            try {
+                operation.run(i);
+            } catch (Exception e) {
+                logger.warn("  Warmup iteration {} failed: {}", i + 1, e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long operationStart = System.nanoTime();
+            try {
+                operation.run(warmup + i);
+                stats.recordLatency(System.nanoTime() - operationStart);
+            } catch (Exception e) {
+                stats.recordError();
+                logger.warn("  Iteration {} failed: {}", i + 1, e.getMessage());
+            }
         }
+        stats.setElapsed(Duration.ofNanos(System.nanoTime() - start));
+        return stats;
+    }
+
+    private static void addIfPresent(ComparisonReport report, LatencyStats stats) {
+        if (stats != null) {
+            report.add(stats);
+        }
+    }
+
+    private static void exportReport(ComparisonReport report, Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            if (file.toString().endsWith(".csv")) {
+                report.writeCsv(file);
+            } else {
+                report.writeJson(file);
+            }
+            logger.info("Results written to {}", file.toAbsolutePath());
+        } catch (IOException e) {
+            logger.error("✗ Could not write {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * One iteration of a measured operation.
+     */
+    @FunctionalInterface
+    interface Operation {
+        void run(int iteration) throws Exception;
     }
 
     private static void printEvaluationSummary() {
@@ -157,8 +274,7 @@ public class GitHubApiComparison {
 
     private static String getInput(String prompt, String defaultValue) {
         System.out.print(prompt);
-        Scanner scanner = new Scanner(System.in);
-        String input = scanner.nextLine().trim();
+        String input = STDIN.nextLine().trim();
         if (input.isEmpty() && defaultValue != null) {
             return defaultValue;
         }
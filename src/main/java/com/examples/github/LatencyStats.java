@@ -0,0 +1,76 @@
+package com.examples.github;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency distribution, throughput and error count of one strategy in a comparison run.
+ * Latencies are recorded in microseconds with three significant digits; values above ten
+ * minutes are clamped. Safe to record into from several threads.
+ */
+public class LatencyStats {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String strategy;
+    private final Histogram histogram = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long elapsedNanos;
+
+    public LatencyStats(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public void recordLatency(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Wall-clock time of the measured phase, used for throughput.
+     */
+    public void setElapsed(Duration elapsed) {
+        this.elapsedNanos = elapsed.toNanos();
+    }
+
+    public String getStrategy() { return strategy; }
+    public long getCount() { return histogram.getTotalCount(); }
+    public long getErrors() { return errors.get(); }
+    public Duration getElapsed() { return Duration.ofNanos(elapsedNanos); }
+
+    /**
+     * Latency at the given percentile (0-100) in microseconds, or 0 if nothing was recorded.
+     */
+    public long percentileMicros(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    public long maxMicros() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+    }
+
+    public double meanMicros() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+    }
+
+    /**
+     * Successful operations per second over the measured phase.
+     */
+    public double throughputPerSecond() {
+        return elapsedNanos == 0 ? 0 : getCount() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d, errors=%d, p50=%dus, p99=%dus, max=%dus, %.2f ops/s",
+            strategy, getCount(), getErrors(), percentileMicros(50), percentileMicros(99),
+            maxMicros(), throughputPerSecond());
+    }
+}
@@ -0,0 +1,354 @@
+package com.examples.github;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Parameter space for a non-interactive {@link ComparisonSweep} run. Every combination of
+ * strategy, file count, payload size and concurrency level is measured for {@code duration}.
+ *
+ * <p>Read from {@code --key=value} arguments and an optional properties file given with
+ * {@code --config=sweep.properties}; arguments override the file. Lists are comma-separated:
+ * <pre>
+ * repositories=octocat/sweep-1,octocat/sweep-2
+ * strategies=KOHSUKE,REST,GRAPHQL
+ * fileCounts=1,10
+ * payloadBytes=1024,65536
+ * concurrency=1,8
+ * durationSeconds=10
+ * warmupSeconds=2
+ * latencyMillis=50
+ * output=build/reports/comparison/sweep.json
+ * </pre>
+ */
+public final class SweepConfig {
+
+    /**
+     * The three client strategies under comparison.
+     */
+    public enum Strategy {
+        KOHSUKE,
+        REST,
+        GRAPHQL
+    }
+
+    private static final Set<String> KEYS = Set.of("repositories", "branch", "strategies", "fileCounts",
+        "payloadBytes", "concurrency", "durationSeconds", "warmupSeconds", "latencyMillis", "jitterMillis",
+        "failureRate", "output");
+
+    private final List<String> repositories;
+    private final String branch;
+    private final Set<Strategy> strategies;
+    private final List<Integer> fileCounts;
+    private final List<Integer> payloadBytes;
+    private final List<Integer> concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double failureRate;
+    private final Path output;
+
+    private SweepConfig(Builder builder) {
+        this.repositories = List.copyOf(builder.repositories);
+        this.branch = builder.branch;
+        this.strategies = EnumSet.copyOf(builder.strategies);
+        this.fileCounts = List.copyOf(builder.fileCounts);
+        this.payloadBytes = List.copyOf(builder.payloadBytes);
+        this.concurrency = List.copyOf(builder.concurrency);
+        this.duration = builder.duration;
+        this.warmup = builder.warmup;
+        this.latency = builder.latency;
+        this.jitter = builder.jitter;
+        this.failureRate = builder.failureRate;
+        this.output = builder.output;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Parses {@code --key=value} arguments, loading {@code --config=<file>} first if given.
+     *
+     * @throws IllegalArgumentException for unknown keys or malformed values
+     */
+    public static SweepConfig fromArgs(String[] args) throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        Map<String, String> merged = new LinkedHashMap<>();
+        String configFile = values.remove("config");
+        if (configFile != null) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(Path.of(configFile), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            properties.stringPropertyNames().forEach(key -> merged.put(key, properties.getProperty(key).trim()));
+        }
+        merged.putAll(values);
+        return fromMap(merged);
+    }
+
+    static SweepConfig fromMap(Map<String, String> values) {
+        for (String key : values.keySet()) {
+            if (!KEYS.contains(key)) {
+                throw new IllegalArgumentException("Unknown setting '" + key + "', expected one of " + KEYS);
+            }
+        }
+
+        Builder builder = builder();
+        if (values.containsKey("repositories")) {
+            builder.repositories(list(values.get("repositories"), Function.identity()));
+        }
+        if (values.containsKey("branch")) {
+            builder.branch(values.get("branch"));
+        }
+        if (values.containsKey("strategies")) {
+            builder.strategies(list(values.get("strategies"),
+                name -> Strategy.valueOf(name.toUpperCase(Locale.ROOT))));
+        }
+        if (values.containsKey("fileCounts")) {
+            builder.fileCounts(list(values.get("fileCounts"), Integer::valueOf));
+        }
+        if (values.containsKey("payloadBytes")) {
+            builder.payloadBytes(list(values.get("payloadBytes"), Integer::valueOf));
+        }
+        if (values.containsKey("concurrency")) {
+            builder.concurrency(list(values.get("concurrency"), Integer::valueOf));
+        }
+        if (values.containsKey("durationSeconds")) {
+            builder.duration(Duration.ofSeconds(Long.parseLong(values.get("durationSeconds"))));
+        }
+        if (values.containsKey("warmupSeconds")) {
+            builder.warmup(Duration.ofSeconds(Long.parseLong(values.get("warmupSeconds"))));
+        }
+        if (values.containsKey("latencyMillis")) {
+            builder.latency(Duration.ofMillis(Long.parseLong(values.get("latencyMillis"))));
+        }
+        if (values.containsKey("jitterMillis")) {
+            builder.jitter(Duration.ofMillis(Long.parseLong(values.get("jitterMillis"))));
+        }
+        if (values.containsKey("failureRate")) {
+            builder.failureRate(Double.parseDouble(values.get("failureRate")));
+        }
+        if (values.containsKey("output")) {
+            builder.output(Path.of(values.get("output")));
+        }
+        return builder.build();
+    }
+
+    private static <T> List<T> list(String value, Function<String, T> parser) {
+        List<T> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                items.add(parser.apply(item.trim()));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Target repositories as {@code owner/name}; workers are spread over them round-robin.
+     */
+    public List<String> getRepositories() { return repositories; }
+    public String getBranch() { return branch; }
+    public Set<Strategy> getStrategies() { return strategies; }
+    public List<Integer> getFileCounts() { return fileCounts; }
+    public List<Integer> getPayloadBytes() { return payloadBytes; }
+    public List<Integer> getConcurrency() { return concurrency; }
+
+    /**
+     * Measured time per combination.
+     */
+    public Duration getDuration() { return duration; }
+
+    /**
+     * Unrecorded time per combination before measuring.
+     */
+    public Duration getWarmup() { return warmup; }
+
+    public Duration getLatency() { return latency; }
+    public Duration getJitter() { return jitter; }
+    public double getFailureRate() { return failureRate; }
+
+    /**
+     * Result file; {@code .csv} for CSV, anything else is written as JSON.
+     */
+    public Path getOutput() { return output; }
+
+    /**
+     * The settings as reported alongside the results.
+     */
+    Map<String, Object> describe() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("repositories", String.join(",", repositories));
+        settings.put("branch", branch);
+        settings.put("durationSeconds", duration.toSeconds());
+        settings.put("warmupSeconds", warmup.toSeconds());
+        settings.put("latencyMillis", latency.toMillis());
+        settings.put("jitterMillis", jitter.toMillis());
+        settings.put("failureRate", failureRate);
+        return settings;
+    }
+
+    @Override
+    public String toString() {
+        return "SweepConfig{repositories=" + repositories
+            + ", branch=" + branch
+            + ", strategies=" + strategies
+            + ", fileCounts=" + fileCounts
+            + ", payloadBytes=" + payloadBytes
+            + ", concurrency=" + concurrency
+            + ", duration=" + duration
+            + ", warmup=" + warmup
+            + ", latency=" + latency
+            + ", jitter=" + jitter
+            + ", failureRate=" + failureRate
+            + ", output=" + output + "}";
+    }
+
+    /**
+     * Builder for {@link SweepConfig}.
+     */
+    public static final class Builder {
+        private List<String> repositories = List.of("octocat/sweep");
+        private String branch = "main";
+        private Set<Strategy> strategies = EnumSet.allOf(Strategy.class);
+        private List<Integer> fileCounts = List.of(1, 10);
+        private List<Integer> payloadBytes = List.of(1024);
+        private List<Integer> concurrency = List.of(1, 4);
+        private Duration duration = Duration.ofSeconds(10);
+        private Duration warmup = Duration.ofSeconds(2);
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private double failureRate;
+        private Path output = Path.of("build", "reports", "comparison", "sweep.json");
+
+        private Builder() {
+        }
+
+        public Builder repositories(List<String> repositories) {
+            if (repositories.isEmpty()) {
+                throw new IllegalArgumentException("repositories must not be empty");
+            }
+            for (String repository : repositories) {
+                if (repository.split("/").length != 2) {
+                    throw new IllegalArgumentException("Expected owner/name but got: " + repository);
+                }
+            }
+            this.repositories = repositories;
+            return this;
+        }
+
+        public Builder branch(String branch) {
+            this.branch = branch;
+            return this;
+        }
+
+        public Builder strategies(Strategy... strategies) {
+            return strategies(Arrays.asList(strategies));
+        }
+
+        public Builder strategies(List<Strategy> strategies) {
+            if (strategies.isEmpty()) {
+                throw new IllegalArgumentException("strategies must not be empty");
+            }
+            this.strategies = EnumSet.copyOf(strategies);
+            return this;
+        }
+
+        public Builder fileCounts(List<Integer> fileCounts) {
+            this.fileCounts = positive("fileCounts", fileCounts);
+            return this;
+        }
+
+        public Builder payloadBytes(List<Integer> payloadBytes) {
+            this.payloadBytes = positive("payloadBytes", payloadBytes);
+            return this;
+        }
+
+        public Builder concurrency(List<Integer> concurrency) {
+            this.concurrency = positive("concurrency", concurrency);
+            return this;
+        }
+
+        public Builder duration(Duration duration) {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("duration must be positive");
+            }
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder warmup(Duration warmup) {
+            if (warmup.isNegative()) {
+                throw new IllegalArgumentException("warmup must not be negative");
+            }
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * Latency the fake server adds to every response.
+         */
+        public Builder latency(Duration latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder jitter(Duration jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Fraction of requests the fake server fails with 502.
+         */
+        public Builder failureRate(double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        public Builder output(Path output) {
+            this.output = output;
+            return this;
+        }
+
+        public SweepConfig build() {
+            return new SweepConfig(this);
+        }
+
+        private static List<Integer> positive(String name, List<Integer> values) {
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException(name + " must not be empty");
+            }
+            for (int value : values) {
+                if (value < 1) {
+                    throw new IllegalArgumentException(name + " must be at least 1");
+                }
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.examples.github.apis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent file updates with blocking-style clients.
+ * Updates are grouped per owner/repo/branch; each group runs sequentially (parallel writes to
+ * one branch only produce SHA conflicts) while different groups run concurrently according to
+ * the {@link ExecutionMode}. Concurrency towards GitHub itself is capped by the transport's
+ * per-host guard.
+ */
+public class BatchUpdater {
+    private static final Logger logger = LoggerFactory.getLogger(BatchUpdater.class);
+
+    /**
+     * How groups of updates are executed.
+     */
+    public enum ExecutionMode {
+        /** Everything on the calling thread. */
+        SEQUENTIAL,
+        /** A fixed pool of platform threads. */
+        PLATFORM_THREADS,
+        /** One virtual thread per group. */
+        VIRTUAL_THREADS
+    }
+
+    private final ExecutionMode mode;
+    private final int platformThreads;
+
+    public BatchUpdater(ExecutionMode mode) {
+        this(mode, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param platformThreads pool size used in {@link ExecutionMode#PLATFORM_THREADS} mode
+     */
+    public BatchUpdater(ExecutionMode mode, int platformThreads) {
+        if (platformThreads < 1) {
+            throw new IllegalArgumentException("platformThreads must be at least 1");
+        }
+        this.mode = mode;
+        this.platformThreads = platformThreads;
+    }
+
+    /**
+     * Applies all updates and waits for them to finish.
+     *
+     * @return one result per update, in input order
+     */
+    public List<Result> updateAll(List<FileUpdate> updates, FileUpdater updater) throws InterruptedException {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < updates.size(); i++) {
+            groups.computeIfAbsent(updates.get(i).branchKey(), key -> new ArrayList<>()).add(i);
+        }
+        logger.info("Applying {} updates across {} branches ({})", updates.size(), groups.size(), mode);
+
+        Result[] results = new Result[updates.size()];
+        if (mode == ExecutionMode.SEQUENTIAL) {
+            groups.values().forEach(group -> runGroup(group, updates, updater, results));
+            return Arrays.asList(results);
+        }
+
+        try (ExecutorService executor = newExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Integer> group : groups.values()) {
+                futures.add(executor.submit(() -> runGroup(group, updates, updater, results)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // runGroup records failures per update; anything else is a bug
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    private ExecutorService newExecutor() {
+        return mode == ExecutionMode.VIRTUAL_THREADS
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newFixedThreadPool(platformThreads);
+    }
+
+    private static void runGroup(List<Integer> group, List<FileUpdate> updates,
+                                 FileUpdater updater, Result[] results) {
+        for (int index : group) {
+            FileUpdate update = updates.get(index);
+            try {
+                String commitSha = updater.updateSingleFile(
+                    update.owner(), update.repo(), update.filePath(), update.branch(), update.content());
+                results[index] = new Result(update, commitSha, null);
+            } catch (Exception e) {
+                logger.error("Failed to update {}: {}", update, e.getMessage());
+                results[index] = new Result(update, null, e);
+            }
+        }
+    }
+
+    /**
+     * A single file update in a batch.
+     */
+    public record FileUpdate(String owner, String repo, String branch, String filePath, String content) {
+
+        String branchKey() {
+            return owner + "/" + repo + "@" + branch;
+        }
+
+        @Override
+        public String toString() {
+            return owner + "/" + repo + "/" + filePath + "@" + branch;
+        }
+    }
+
+    /**
+     * Outcome of a single update: the commit SHA ({@code null} if unchanged) or the error.
+     */
+    public record Result(FileUpdate update, String commitSha, Exception error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.examples.github.apis;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+
+/**
+ * Request body for {@code POST git/blobs}, with the content base64-encoded from its
+ * {@link ContentSource} while it is written, like {@link CommitMutationBody}.
+ */
+final class BlobRequestBody extends RequestBody {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final String PREFIX = "{\"encoding\":\"base64\",\"content\":\"";
+    private static final String SUFFIX = "\"}";
+
+    private final ContentSource content;
+
+    BlobRequestBody(ContentSource content) {
+        this.content = content;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long contentBytes = content.length();
+        return contentBytes < 0 ? -1 : PREFIX.length() + ((contentBytes + 2) / 3) * 4 + SUFFIX.length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.writeUtf8(PREFIX);
+        CommitMutationBody.writeBase64(content, sink);
+        sink.writeUtf8(SUFFIX);
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return !content.isRepeatable();
+    }
+}
@@ -0,0 +1,57 @@
+package com.examples.github.apis;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a GraphQL client knows about the branches it commits to: each branch's head as of our
+ * last successful commit. A remembered head saves the repository query before the next commit;
+ * if another writer has moved the branch in the meantime, the commit is rejected as stale and
+ * the head is queried again.
+ */
+public class BranchStateCache {
+    private final Map<String, String> heads = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    /**
+     * Remembered head of the branch, or {@code null} if it has to be queried.
+     */
+    String head(String owner, String repo, String branch) {
+        String head = heads.get(branchKey(owner, repo, branch));
+        (head != null ? hits : misses).incrementAndGet();
+        return head;
+    }
+
+    void updateHead(String owner, String repo, String branch, String headOid) {
+        heads.put(branchKey(owner, repo, branch), headOid);
+    }
+
+    /**
+     * Forgets a head that turned out to be stale.
+     */
+    void invalidateHead(String owner, String repo, String branch) {
+        heads.remove(branchKey(owner, repo, branch));
+        stale.incrementAndGet();
+    }
+
+    /** Commits that started from a remembered head. */
+    public long getHits() { return hits.get(); }
+
+    /** Commits that had to query the head first. */
+    public long getMisses() { return misses.get(); }
+
+    /** Heads that were rejected as stale, whether remembered or freshly queried. */
+    public long getStale() { return stale.get(); }
+
+    private static String branchKey(String owner, String repo, String branch) {
+        return owner + "/" + repo + "/" + branch;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, stale=%d", getHits(), getMisses(), getStale());
+    }
+}
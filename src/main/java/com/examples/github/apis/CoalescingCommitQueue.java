@@ -0,0 +1,206 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue that turns many small writes to a branch into few atomic commits.
+ * Changes are collected per owner/repo/branch until the window since the first pending change
+ * has passed or {@code maxChangesPerCommit} distinct paths are pending, then flushed with
+ * {@link GraphQLApiExample#createAtomicCommit}. Several writes to one path collapse to the
+ * last. Commits to the same branch are sent one at a time, so the queue never conflicts with
+ * itself; writes that arrive while a commit is in flight go into the next one.
+ *
+ * <pre>{@code
+ * try (CoalescingCommitQueue queue = new CoalescingCommitQueue(graphql, Duration.ofMillis(200), 100)) {
+ *     CompletableFuture<String> oid = queue.submit("octocat", "repo", "main", new FileChange("a.txt", "a"));
+ * }
+ * }</pre>
+ */
+public class CoalescingCommitQueue implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingCommitQueue.class);
+
+    private final GraphQLApiExample client;
+    private final Duration window;
+    private final int maxChangesPerCommit;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService committer = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Batch> pending = new HashMap<>();
+    private final Map<String, CompletableFuture<Void>> inFlight = new HashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+    private boolean closed;
+
+    /**
+     * @param window              how long the first change of a batch may wait for others
+     * @param maxChangesPerCommit distinct paths that trigger an immediate flush
+     */
+    public CoalescingCommitQueue(GraphQLApiExample client, Duration window, int maxChangesPerCommit) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        if (maxChangesPerCommit < 1) {
+            throw new IllegalArgumentException("maxChangesPerCommit must be at least 1");
+        }
+        this.client = client;
+        this.window = window;
+        this.maxChangesPerCommit = maxChangesPerCommit;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "commit-queue-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a change for the branch.
+     *
+     * @return completes with the OID of the commit that contains the change, or exceptionally
+     *         with the {@link java.io.IOException} that failed it
+     */
+    public CompletableFuture<String> submit(String owner, String repo, String branch, FileChange change) {
+        String key = owner + "/" + repo + "/" + branch;
+        CompletableFuture<String> result = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Commit queue is closed");
+            }
+            submitted.incrementAndGet();
+            Batch batch = pending.get(key);
+            if (batch == null) {
+                Batch created = new Batch(owner, repo, branch);
+                pending.put(key, created);
+                created.timeout = timer.schedule(() -> flush(key, created), window.toNanos(), TimeUnit.NANOSECONDS);
+                batch = created;
+            }
+            if (batch.changes.put(change.getPath(), change) != null) {
+                coalesced.incrementAndGet();
+            }
+            batch.results.add(result);
+            if (batch.changes.size() >= maxChangesPerCommit) {
+                flush(key, batch);
+            }
+        }
+        return result;
+    }
+
+    public CompletableFuture<String> submit(String owner, String repo, String branch, String path, String content) {
+        return submit(owner, repo, branch, new FileChange(path, content));
+    }
+
+    /**
+     * Sends every pending batch now instead of waiting for its window.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<String, Batch> entry : new ArrayList<>(pending.entrySet())) {
+            flush(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Hands the batch to the committer, behind any commit still in flight for that branch, if it
+     * is still the branch's pending batch. A window timer that fires after its batch was flushed
+     * for size therefore leaves the branch's next batch to its own window.
+     */
+    private synchronized void flush(String key, Batch batch) {
+        if (!pending.remove(key, batch)) {
+            return;
+        }
+        batch.timeout.cancel(false);
+        CompletableFuture<Void> previous = inFlight.getOrDefault(key, CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> next = previous.thenRunAsync(() -> commit(batch), committer);
+        inFlight.put(key, next);
+        next.whenComplete((ignored, error) -> {
+            synchronized (this) {
+                inFlight.remove(key, next);
+            }
+        });
+    }
+
+    private void commit(Batch batch) {
+        FileChange[] changes = batch.changes.values().toArray(new FileChange[0]);
+        String message = changes.length == 1
+            ? "Update " + changes[0].getPath()
+            : "Update " + changes.length + " files";
+        try {
+            String oid = client.createAtomicCommit(batch.owner, batch.repo, batch.branch, message, changes);
+            commits.incrementAndGet();
+            logger.debug("Flushed {} writes to {}/{}/{} as {}", batch.results.size(),
+                batch.owner, batch.repo, batch.branch, oid);
+            batch.results.forEach(result -> result.complete(oid));
+        } catch (Exception e) {
+            failedCommits.incrementAndGet();
+            logger.warn("Commit of {} changes to {}/{}/{} failed: {}", changes.length,
+                batch.owner, batch.repo, batch.branch, e.getMessage());
+            batch.results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    public long getSubmitted() { return submitted.get(); }
+
+    /**
+     * Writes replaced by a later write to the same path before their batch was flushed.
+     */
+    public long getCoalesced() { return coalesced.get(); }
+
+    public long getCommits() { return commits.get(); }
+    public long getFailedCommits() { return failedCommits.get(); }
+
+    /**
+     * Flushes everything pending, waits for in-flight commits and stops accepting writes.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<?>[] remaining;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flush();
+            remaining = inFlight.values().toArray(new CompletableFuture<?>[0]);
+        }
+        CompletableFuture.allOf(remaining).exceptionally(error -> null).join();
+        timer.shutdownNow();
+        committer.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("submitted=%d, coalesced=%d, commits=%d, failedCommits=%d",
+            getSubmitted(), getCoalesced(), getCommits(), getFailedCommits());
+    }
+
+    private static final class Batch {
+        private final String owner;
+        private final String repo;
+        private final String branch;
+        private final Map<String, FileChange> changes = new LinkedHashMap<>();
+        private final List<CompletableFuture<String>> results = new ArrayList<>();
+        private ScheduledFuture<?> timeout;
+
+        private Batch(String owner, String repo, String branch) {
+            this.owner = owner;
+            this.repo = repo;
+            this.branch = branch;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.google.gson.JsonPrimitive;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Utf8;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * Request body for a {@code createCommitOnBranch} mutation that is written straight to the
+ * socket. File contents are read from their {@link ContentSource} and base64-encoded while they
+ * are being written, so no JSON tree, body string or encoded copy of the changeset is ever held
+ * in memory; heap use stays at a few small buffers regardless of changeset size.
+ */
+final class CommitMutationBody extends RequestBody {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final String prefix;
+    private final String suffix;
+    private final Entry[] additions;
+    private final Entry[] deletions;
+
+    CommitMutationBody(String mutation, String repositoryNameWithOwner, String branch,
+                       String commitMessage, String expectedHeadOid,
+                       FileChange[] fileChanges) {
+        int additionCount = 0;
+        for (FileChange change : fileChanges) {
+            if (!change.isDelete()) {
+                additionCount++;
+            }
+        }
+        this.additions = new Entry[additionCount];
+        this.deletions = new Entry[fileChanges.length - additionCount];
+        int a = 0;
+        int d = 0;
+        for (FileChange change : fileChanges) {
+            if (change.isDelete()) {
+                deletions[d++] = new Entry(change, "{\"path\":" + quote(change.getPath()) + "}");
+            } else {
+                additions[a++] = new Entry(change, "{\"path\":" + quote(change.getPath()) + ",\"contents\":\"");
+            }
+        }
+
+        this.prefix = "{\"query\":" + quote(mutation)
+            + ",\"variables\":{\"input\":{\"branch\":{\"repositoryNameWithOwner\":" + quote(repositoryNameWithOwner)
+            + ",\"branchName\":" + quote(branch)
+            + "},\"message\":{\"headline\":" + quote(commitMessage)
+            + "},\"fileChanges\":{";
+        this.suffix = "},\"expectedHeadOid\":" + quote(expectedHeadOid) + "}}}";
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    /**
+     * Exact body size, or -1 (chunked transfer) if a content source does not know its size.
+     */
+    @Override
+    public long contentLength() throws IOException {
+        long length = Utf8.size(prefix) + Utf8.size(suffix);
+        if (additions.length > 0) {
+            length += "\"additions\":[]".length() + additions.length - 1;
+            for (Entry addition : additions) {
+                long contentBytes = addition.change.getSource().length();
+                if (contentBytes < 0) {
+                    return -1;
+                }
+                length += Utf8.size(addition.head) + ((contentBytes + 2) / 3) * 4 + "\"}".length();
+            }
+        }
+        if (deletions.length > 0) {
+            length += "\"deletions\":[]".length() + deletions.length - 1;
+            if (additions.length > 0) {
+                length += 1;
+            }
+            for (Entry deletion : deletions) {
+                length += Utf8.size(deletion.head);
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.writeUtf8(prefix);
+
+        if (additions.length > 0) {
+            sink.writeUtf8("\"additions\":[");
+            for (int i = 0; i < additions.length; i++) {
+                if (i > 0) {
+                    sink.writeByte(',');
+                }
+                sink.writeUtf8(additions[i].head);
+                writeBase64(additions[i].change.getSource(), sink);
+                sink.writeUtf8("\"}");
+            }
+            sink.writeByte(']');
+        }
+
+        if (deletions.length > 0) {
+            if (additions.length > 0) {
+                sink.writeByte(',');
+            }
+            sink.writeUtf8("\"deletions\":[");
+            for (int i = 0; i < deletions.length; i++) {
+                if (i > 0) {
+                    sink.writeByte(',');
+                }
+                sink.writeUtf8(deletions[i].head);
+            }
+            sink.writeByte(']');
+        }
+
+        sink.writeUtf8(suffix);
+    }
+
+    @Override
+    public boolean isOneShot() {
+        for (Entry addition : additions) {
+            if (!addition.change.getSource().isRepeatable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Base64 needs no JSON escaping, so the encoder writes directly into the string value.
+     */
+    static void writeBase64(ContentSource content, BufferedSink sink) throws IOException {
+        OutputStream base64 = Base64.getEncoder().wrap(new FilterOutputStream(sink.outputStream()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                // The encoder closes this stream after emitting its final padding; keep the sink open
+            }
+        });
+        try (base64) {
+            content.writeTo(base64);
+        }
+    }
+
+    /**
+     * The value as a JSON string literal, escaped as it is written into the body.
+     */
+    static String quote(String value) {
+        return new JsonPrimitive(value).toString();
+    }
+
+    /**
+     * A file change with its pre-rendered JSON head ({@code {"path":...}}).
+     */
+    private record Entry(FileChange change, String head) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.examples.github.apis;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry policy for commits rejected because another writer moved the branch first
+ * ({@code expectedHeadOid} no longer matches). Each retry waits a random time up to an
+ * exponentially growing cap ("full jitter"), so writers that collided spread out instead of
+ * colliding again, then re-submits on top of the new head. Shared by all commits of a client
+ * and keeps conflict and retry counts for them.
+ */
+public class ConflictRetry {
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong backoffMillis = new AtomicLong();
+
+    public ConflictRetry() {
+        this(5, Duration.ofMillis(50), Duration.ofSeconds(2));
+    }
+
+    /**
+     * @param maxAttempts    commit attempts including the first
+     * @param initialBackoff cap on the wait before the first retry, doubled for each further one
+     * @param maxBackoff     upper bound for the cap
+     */
+    public ConflictRetry(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("backoff must satisfy 0 <= initialBackoff <= maxBackoff");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Records a conflict on the given attempt (1-based) and, if another attempt is allowed,
+     * waits out its backoff.
+     *
+     * @return whether the caller should retry
+     */
+    boolean onConflict(int attempt) throws InterruptedIOException {
+        conflicts.incrementAndGet();
+        if (attempt >= maxAttempts) {
+            exhausted.incrementAndGet();
+            return false;
+        }
+
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 30));
+        long wait = cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off from a branch conflict");
+        }
+        backoffMillis.addAndGet(wait);
+        retries.incrementAndGet();
+        return true;
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    /** Commits rejected because the branch head had moved. */
+    public long getConflicts() { return conflicts.get(); }
+
+    /** Commits re-submitted after a conflict. */
+    public long getRetries() { return retries.get(); }
+
+    /** Commits that still conflicted on their last attempt. */
+    public long getExhausted() { return exhausted.get(); }
+
+    public long getBackoffMillis() { return backoffMillis.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("conflicts=%d, retries=%d, exhausted=%d, backoff=%dms",
+            getConflicts(), getRetries(), getExhausted(), getBackoffMillis());
+    }
+}
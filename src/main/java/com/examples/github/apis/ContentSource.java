@@ -0,0 +1,162 @@
+package com.examples.github.apis;
+
+import com.examples.github.git.GitHashes;
+import okio.Utf8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * File content for a commit, read only when the request body is written.
+ * Text, byte arrays, files and streams are supported, so binary and generated artifacts can
+ * be committed without first loading them into memory.
+ */
+public interface ContentSource {
+
+    /**
+     * Content size in bytes, or -1 if it is only known once read.
+     */
+    long length() throws IOException;
+
+    /**
+     * Writes the raw content bytes to the stream. Does not close it.
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Whether {@link #writeTo} may be called more than once (needed for retries).
+     */
+    default boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * Git blob SHA of the content, streamed through the digest, or {@code null} if the size is
+     * unknown or the content cannot be read twice.
+     */
+    default String blobSha() throws IOException {
+        long length = length();
+        if (length < 0 || !isRepeatable()) {
+            return null;
+        }
+        MessageDigest digest = GitHashes.blobDigest(length);
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            writeTo(out);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * UTF-8 encoded text, encoded in small chunks while it is written.
+     */
+    static ContentSource ofText(String text) {
+        return new ContentSource() {
+            private static final int CHUNK_CHARS = 8192;
+
+            @Override
+            public long length() {
+                return Utf8.size(text);
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                for (int offset = 0; offset < text.length(); offset += CHUNK_CHARS) {
+                    writer.write(text, offset, Math.min(CHUNK_CHARS, text.length() - offset));
+                }
+                writer.flush();
+            }
+        };
+    }
+
+    static ContentSource ofBytes(byte[] bytes) {
+        return new ContentSource() {
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(bytes);
+            }
+        };
+    }
+
+    /**
+     * Contents of a file, streamed from disk.
+     */
+    static ContentSource ofFile(Path file) {
+        return new ContentSource() {
+            @Override
+            public long length() throws IOException {
+                return Files.size(file);
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Files.copy(file, out);
+            }
+        };
+    }
+
+    /**
+     * A stream opened each time the content is written.
+     */
+    static ContentSource ofStream(StreamSupplier supplier) {
+        return new ContentSource() {
+            @Override
+            public long length() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (InputStream in = supplier.open()) {
+                    in.transferTo(out);
+                }
+            }
+        };
+    }
+
+    /**
+     * A stream that can be consumed only once; the request cannot be retried.
+     */
+    static ContentSource ofStream(InputStream stream) {
+        return new ContentSource() {
+            @Override
+            public long length() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (stream) {
+                    stream.transferTo(out);
+                }
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Opens a fresh input stream over the content.
+     */
+    @FunctionalInterface
+    interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+}
@@ -0,0 +1,18 @@
+package com.examples.github.apis;
+
+import java.io.IOException;
+
+/**
+ * Common single-file update operation implemented by all three clients.
+ */
+@FunctionalInterface
+public interface FileUpdater {
+
+    /**
+     * Replaces the content of an existing file on a branch.
+     *
+     * @return the new commit SHA, or {@code null} if the file already had this content
+     */
+    String updateSingleFile(String owner, String repo, String filePath,
+                            String branch, String newContent) throws IOException;
+}
@@ -1,51 +1,94 @@
 package com.examples.github.apis;
 
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
 import com.google.gson.Gson;
-import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import okhttp3.*;
+import okio.Utf8;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Example using GitHub's GraphQL API.
  * GraphQL is superior for atomic multi-file operations.
  */
-public class GraphQLApiExample {
+public class GraphQLApiExample implements FileUpdater {
     private static final Logger logger = LoggerFactory.getLogger(GraphQLApiExample.class);
     private static final String GITHUB_GRAPHQL_ENDPOINT = "https://api.github.com/graphql";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
 
+    /** Rough size of the mutation text, branch and JSON framing around the message and file changes. */
+    static final long MUTATION_OVERHEAD_BYTES = 1024;
+    /** Room for the {@code " (part i/n)"} suffix of a chained commit's message. */
+    static final long PART_SUFFIX_BYTES = 24;
+
     private final OkHttpClient client;
-    private final String token;
+    private final String endpoint;
+    private final TokenPool tokens;
+    private final ConflictRetry conflictRetry;
+    private final BranchStateCache branchState = new BranchStateCache();
     private final Gson gson;
 
     public GraphQLApiExample(String token) {
-        this.token = token;
-        this.client = new OkHttpClient.Builder()
-            .addInterceptor(chain -> {
-                Request request = chain.request().newBuilder()
-                    .addHeader("Authorization", "Bearer " + token)
-                    .addHeader("Content-Type", "application/json")
-                    .build();
-                return chain.proceed(request);
-            })
-            .build();
+        this(token, GitHubTransport.shared());
+    }
+
+    /**
+     * Creates a client on top of the given transport, sharing its connection pool and dispatcher.
+     */
+    public GraphQLApiExample(String token, OkHttpClient transport) {
+        this(TokenPool.of(token), transport);
+    }
+
+    /**
+     * Creates a client that authenticates each request with the pool token that has the most
+     * remaining GraphQL budget.
+     */
+    public GraphQLApiExample(TokenPool tokens, OkHttpClient transport) {
+        this(tokens, transport, GITHUB_GRAPHQL_ENDPOINT);
+    }
+
+    /**
+     * Creates a client against another GraphQL endpoint, such as GitHub Enterprise
+     * ({@code https://host/api/graphql}) or a local stand-in server.
+     */
+    public GraphQLApiExample(TokenPool tokens, OkHttpClient transport, String endpoint) {
+        this(tokens, transport, endpoint, null);
+    }
+
+    /**
+     * Creates a client that re-submits commits rejected for a stale {@code expectedHeadOid}
+     * according to {@code conflictRetry}, or fails them with {@link StaleHeadException} if it
+     * is {@code null}.
+     */
+    public GraphQLApiExample(TokenPool tokens, OkHttpClient transport, String endpoint, ConflictRetry conflictRetry) {
+        this.tokens = tokens;
+        this.endpoint = endpoint;
+        this.conflictRetry = conflictRetry;
+        this.client = GitHubTransport.clientBuilder(transport, tokens.authenticator(), chain -> {
+            Request request = chain.request().newBuilder()
+                .addHeader("Content-Type", "application/json")
+                .build();
+            return chain.proceed(request);
+        }).build();
         this.gson = new Gson();
     }
 
     /**
-     * Gets the repository ID and current HEAD commit SHA (OID) needed for GraphQL mutations.
+     * Gets the branch's current HEAD commit SHA (OID), the {@code expectedHeadOid} of the next commit.
      */
-    private JsonObject getRepositoryInfo(String owner, String repo, String branch) throws IOException {
+    private String getHeadOid(String owner, String repo, String branch) throws IOException {
         String query = """
             query($owner: String!, $repo: String!, $branch: String!) {
               repository(owner: $owner, name: $repo) {
-                id
                 ref(qualifiedName: $branch) {
                   target {
                     ... on Commit {
@@ -57,6 +100,19 @@ public class GraphQLApiExample {
             }
             """;
 
+        JsonElement oid = queryRepository(query, owner, repo, branch, "data.repository.ref.target.oid");
+        if (oid == null || oid.isJsonNull()) {
+            throw new IOException("Branch not found: " + owner + "/" + repo + "/" + branch);
+        }
+        return oid.getAsString();
+    }
+
+    /**
+     * Runs a query taking {@code $owner}, {@code $repo} and {@code $branch} and returns the
+     * element at {@code path}, or {@code null} if the response does not contain it.
+     */
+    private JsonElement queryRepository(String query, String owner, String repo, String branch,
+                                        String path) throws IOException {
         JsonObject variables = new JsonObject();
         variables.addProperty("owner", owner);
         variables.addProperty("repo", repo);
@@ -67,7 +123,7 @@ public class GraphQLApiExample {
         requestBody.add("variables", variables);
 
         Request request = new Request.Builder()
-            .url(GITHUB_GRAPHQL_ENDPOINT)
+            .url(endpoint)
             .post(RequestBody.create(gson.toJson(requestBody), JSON))
             .build();
 
@@ -76,15 +132,35 @@ public class GraphQLApiExample {
                 throw new IOException("Failed to get repository info: " + response.code());
             }
 
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+            Map<String, JsonElement> fields = JsonFields.extract(response.body(), path, "errors");
+            checkErrors(fields);
+            return fields.get(path);
+        }
+    }
 
-            if (json.has("errors")) {
-                throw new IOException("GraphQL errors: " + json.get("errors").toString());
-            }
+    private static void checkErrors(Map<String, JsonElement> fields) throws IOException {
+        if (fields.containsKey("errors")) {
+            throw new IOException("GraphQL errors: " + fields.get("errors").toString());
+        }
+    }
 
-            return json.getAsJsonObject("data").getAsJsonObject("repository");
+    /**
+     * Whether the errors report that {@code expectedHeadOid} no longer matches the branch.
+     */
+    private static boolean isStaleHead(JsonElement errors) {
+        if (errors == null || !errors.isJsonArray()) {
+            return false;
         }
+        for (JsonElement error : errors.getAsJsonArray()) {
+            JsonObject object = error.getAsJsonObject();
+            if (object.has("type") && "STALE_DATA".equals(object.get("type").getAsString())) {
+                return true;
+            }
+            if (object.has("message") && object.get("message").getAsString().startsWith("Expected branch to point to")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -95,79 +171,212 @@ public class GraphQLApiExample {
                                     String commitMessage, FileChange[] fileChanges) throws IOException {
         logger.info("Creating atomic commit with {} file changes", fileChanges.length);
 
-        // Get repository info
-        JsonObject repoInfo = getRepositoryInfo(owner, repo, branch);
-        String repoId = repoInfo.get("id").getAsString();
-        String headOid = repoInfo.getAsJsonObject("ref")
-            .getAsJsonObject("target")
-            .get("oid").getAsString();
+        // Our last commit's OID saves the query unless someone else has committed since
+        String headOid = branchState.head(owner, repo, branch);
+        boolean remembered = headOid != null;
+        if (!remembered) {
+            headOid = getHeadOid(owner, repo, branch);
+        }
+
+        return commitWithRetry(owner, repo, branch, commitMessage, fileChanges, headOid, remembered);
+    }
 
-        logger.info("Repository ID: {}", repoId);
-        logger.info("Current HEAD: {}", headOid);
+    /**
+     * Like {@link #createAtomicCommit(String, String, String, String, FileChange[])}, but first
+     * drops the changes the branch already matches according to {@code treeDiff}, and commits on
+     * top of the head the diff was taken at. After a conflict the diff is taken again, because the
+     * branch may now differ in files that were dropped.
+     *
+     * @return the new commit's OID, or {@code null} if the branch already matched every change
+     */
+    public String createAtomicCommit(String owner, String repo, String branch, String commitMessage,
+                                     FileChange[] fileChanges, TreeDiff treeDiff) throws IOException {
+        int conflicts = 0;
+        while (true) {
+            TreeSnapshot snapshot = treeDiff.snapshot(owner, repo, branch);
+            FileChange[] changed = treeDiff.changedFiles(snapshot, fileChanges);
+            if (changed.length == 0) {
+                logger.info("Branch {} already matches all {} file changes, skipping commit", branch, fileChanges.length);
+                branchState.updateHead(owner, repo, branch, snapshot.getCommitSha());
+                return null;
+            }
 
-        // Build the mutation
-        String mutation = """
-            mutation($input: CreateCommitOnBranchInput!) {
-              createCommitOnBranch(input: $input) {
-                commit {
-                  oid
-                  url
+            logger.info("Creating atomic commit with {} of {} file changes", changed.length, fileChanges.length);
+            try {
+                String commitOid = commitOnBranch(owner, repo, branch, commitMessage, changed, snapshot.getCommitSha());
+                branchState.updateHead(owner, repo, branch, commitOid);
+                return commitOid;
+            } catch (StaleHeadException e) {
+                branchState.invalidateHead(owner, repo, branch);
+                if (!isRepeatable(changed) || conflictRetry == null || !conflictRetry.onConflict(++conflicts)) {
+                    throw e;
                 }
-              }
+                logger.info("Branch {} moved, diffing again", branch);
             }
-            """;
+        }
+    }
 
-        // Build file changes
-        JsonObject fileChangesJson = new JsonObject();
-        JsonArray additions = new JsonArray();
-        JsonArray deletions = new JsonArray();
+    /**
+     * Creates a chain of commits from the file changes, each with an estimated request payload of
+     * at most {@code maxBytesPerCommit}, so changesets too large for a single mutation still go
+     * through. Each commit's OID is used as the next one's {@code expectedHeadOid}. A single file
+     * larger than the budget, or of unknown size, is sent in a commit of its own.
+     *
+     * <p>Each part is atomic but the chain is not: if a part fails after earlier ones were
+     * committed, the branch is left with only those, and a {@link PartialCommitException}
+     * carrying their OIDs is thrown so the caller can resume from the remaining changes or revert.
+     *
+     * @return the OIDs of the created commits, oldest first
+     * @throws PartialCommitException if some but not all parts were committed
+     */
+    public List<String> createAtomicCommits(String owner, String repo, String branch, String commitMessage,
+                                            FileChange[] fileChanges, long maxBytesPerCommit) throws IOException {
+        List<FileChange[]> chunks = chunkBySize(fileChanges, commitMessage, maxBytesPerCommit);
+        logger.info("Splitting {} file changes into {} commits of at most {} bytes",
+            fileChanges.length, chunks.size(), maxBytesPerCommit);
+
+        String headOid = branchState.head(owner, repo, branch);
+        boolean remembered = headOid != null;
+        if (!remembered) {
+            headOid = getHeadOid(owner, repo, branch);
+        }
 
-        for (FileChange change : fileChanges) {
-            if (change.isDelete()) {
-                JsonObject deletion = new JsonObject();
-                deletion.addProperty("path", change.getPath());
-                deletions.add(deletion);
-            } else {
-                JsonObject addition = new JsonObject();
-                addition.addProperty("path", change.getPath());
-                addition.addProperty("contents",
-                    Base64.getEncoder().encodeToString(change.getContent().getBytes(StandardCharsets.UTF_8)));
-                additions.add(addition);
+        List<String> commitOids = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            String message = chunks.size() == 1
+                ? commitMessage
+                : commitMessage + " (part " + (i + 1) + "/" + chunks.size() + ")";
+            try {
+                // Later parts start from our own previous part, which is as good as a remembered head
+                headOid = commitWithRetry(owner, repo, branch, message, chunks.get(i), headOid, remembered || i > 0);
+            } catch (IOException e) {
+                if (commitOids.isEmpty()) {
+                    throw e;
+                }
+                throw new PartialCommitException(branch, commitOids, chunks.size(), e);
             }
+            commitOids.add(headOid);
         }
+        return commitOids;
+    }
 
-        if (additions.size() > 0) {
-            fileChangesJson.add("additions", additions);
+    /**
+     * Splits the changes, in order, into groups whose estimated payload, commit message included,
+     * fits the budget.
+     */
+    static List<FileChange[]> chunkBySize(FileChange[] fileChanges, String commitMessage,
+                                          long maxBytesPerCommit) throws IOException {
+        long overhead = MUTATION_OVERHEAD_BYTES + Utf8.size(CommitMutationBody.quote(commitMessage)) + PART_SUFFIX_BYTES;
+        if (maxBytesPerCommit <= overhead) {
+            throw new IllegalArgumentException("maxBytesPerCommit must exceed " + overhead
+                + " bytes for this commit message");
         }
-        if (deletions.size() > 0) {
-            fileChangesJson.add("deletions", deletions);
+
+        List<FileChange[]> chunks = new ArrayList<>();
+        List<FileChange> current = new ArrayList<>();
+        long currentBytes = overhead;
+
+        for (FileChange change : fileChanges) {
+            long size = change.estimatedPayloadBytes();
+            boolean unknownSize = size < 0;
+            if (unknownSize) {
+                // Fill the budget so the change gets a commit of its own
+                size = maxBytesPerCommit;
+            }
+            if (!current.isEmpty() && currentBytes + size > maxBytesPerCommit) {
+                chunks.add(current.toArray(new FileChange[0]));
+                current = new ArrayList<>();
+                currentBytes = overhead;
+            }
+            if (!unknownSize && overhead + size > maxBytesPerCommit) {
+                logger.warn("{} alone exceeds the commit budget ({} bytes)", change.getPath(), size);
+            }
+            current.add(change);
+            currentBytes += size;
         }
+        if (!current.isEmpty()) {
+            chunks.add(current.toArray(new FileChange[0]));
+        }
+        return chunks;
+    }
 
-        // Build input
-        JsonObject branchInput = new JsonObject();
-        branchInput.addProperty("repositoryNameWithOwner", owner + "/" + repo);
-        branchInput.addProperty("branchName", branch);
+    /**
+     * Commits on top of {@code headOid}; if the branch has moved, refetches its head and
+     * re-submits as long as the {@link ConflictRetry} policy allows. A {@code remembered} head
+     * that turns out stale is refetched once without counting as a conflict, since a freshly
+     * queried head would not have been stale. Changes whose content can only be read once are
+     * never re-submitted; the {@link StaleHeadException} is thrown instead.
+     */
+    private String commitWithRetry(String owner, String repo, String branch, String commitMessage,
+                                   FileChange[] fileChanges, String headOid, boolean remembered) throws IOException {
+        int conflicts = 0;
+        while (true) {
+            try {
+                String commitOid = commitOnBranch(owner, repo, branch, commitMessage, fileChanges, headOid);
+                branchState.updateHead(owner, repo, branch, commitOid);
+                return commitOid;
+            } catch (StaleHeadException e) {
+                branchState.invalidateHead(owner, repo, branch);
+                if (!isRepeatable(fileChanges)) {
+                    throw e;
+                }
+                if (remembered) {
+                    remembered = false;
+                } else if (conflictRetry == null || !conflictRetry.onConflict(++conflicts)) {
+                    throw e;
+                }
+                headOid = getHeadOid(owner, repo, branch);
+                logger.info("Branch {} moved, retrying commit on {}", branch, headOid);
+            }
+        }
+    }
 
-        JsonObject messageInput = new JsonObject();
-        messageInput.addProperty("headline", commitMessage);
+    /**
+     * Whether every change's content can be read again, so the changes can be re-submitted.
+     */
+    private static boolean isRepeatable(FileChange[] fileChanges) {
+        for (FileChange change : fileChanges) {
+            if (change.getSource() != null && !change.getSource().isRepeatable()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        JsonObject input = new JsonObject();
-        input.add("branch", branchInput);
-        input.add("message", messageInput);
-        input.add("fileChanges", fileChangesJson);
-        input.addProperty("expectedHeadOid", headOid);
+    /**
+     * Repository ids and branch heads remembered between commits, with hit/miss counts.
+     */
+    public BranchStateCache getBranchState() {
+        return branchState;
+    }
 
-        JsonObject variables = new JsonObject();
-        variables.add("input", input);
+    /**
+     * Sends one createCommitOnBranch mutation on top of the given head.
+     *
+     * @throws StaleHeadException if the branch no longer points at {@code headOid}
+     */
+    private String commitOnBranch(String owner, String repo, String branch, String commitMessage,
+                                  FileChange[] fileChanges, String headOid) throws IOException {
+        // Build the mutation
+        String mutation = """
+            mutation($input: CreateCommitOnBranchInput!) {
+              createCommitOnBranch(input: $input) {
+                commit {
+                  oid
+                  url
+                }
+              }
+            }
+            """;
 
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("query", mutation);
-        requestBody.add("variables", variables);
+        // The body streams the base64 contents straight to the socket
+        RequestBody body = new CommitMutationBody(
+            mutation, owner + "/" + repo, branch, commitMessage, headOid, fileChanges);
 
         // Execute mutation
         Request request = new Request.Builder()
-            .url(GITHUB_GRAPHQL_ENDPOINT)
-            .post(RequestBody.create(gson.toJson(requestBody), JSON))
+            .url(endpoint)
+            .post(body)
             .build();
 
         try (Response response = client.newCall(request).execute()) {
@@ -176,16 +385,13 @@ public class GraphQLApiExample {
                 throw new IOException("Failed to create commit: " + response.code() + " - " + errorBody);
             }
 
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-
-            if (json.has("errors")) {
-                throw new IOException("GraphQL errors: " + json.get("errors").toString());
+            Map<String, JsonElement> fields = JsonFields.extract(response.body(),
+                "data.createCommitOnBranch.commit", "errors");
+            if (isStaleHead(fields.get("errors"))) {
+                throw new StaleHeadException(branch, headOid, fields.get("errors").toString());
             }
-
-            JsonObject commit = json.getAsJsonObject("data")
-                .getAsJsonObject("createCommitOnBranch")
-                .getAsJsonObject("commit");
+            checkErrors(fields);
+            JsonObject commit = fields.get("data.createCommitOnBranch.commit").getAsJsonObject();
 
             String commitOid = commit.get("oid").getAsString();
             String commitUrl = commit.get("url").getAsString();
@@ -198,6 +404,16 @@ public class GraphQLApiExample {
         }
     }
 
+    /**
+     * Updates a single file as a one-file atomic commit.
+     */
+    @Override
+    public String updateSingleFile(String owner, String repo, String filePath,
+                                   String branch, String newContent) throws IOException {
+        return createAtomicCommit(owner, repo, branch, "Update " + filePath + " via GraphQL API",
+            new FileChange[] { new FileChange(filePath, newContent) });
+    }
+
     /**
      * Demonstrates a multi-file update scenario.
      */
@@ -221,29 +437,138 @@ public class GraphQLApiExample {
         logger.info("Success! All {} files updated in single commit: {}", changes.length, commitOid);
     }
 
+    /**
+     * A commit was rejected because the branch no longer points at the expected head, i.e.
+     * another writer committed first.
+     */
+    public static class StaleHeadException extends IOException {
+        private final String branch;
+        private final String expectedHeadOid;
+
+        public StaleHeadException(String branch, String expectedHeadOid, String errors) {
+            super("Branch " + branch + " moved past " + expectedHeadOid + ": " + errors);
+            this.branch = branch;
+            this.expectedHeadOid = expectedHeadOid;
+        }
+
+        public String getBranch() { return branch; }
+        public String getExpectedHeadOid() { return expectedHeadOid; }
+    }
+
+    /**
+     * A chain of commits from {@link #createAtomicCommits} failed part-way: the commits in
+     * {@link #getCommittedOids} are on the branch, the rest of the changes are not. The cause
+     * is the failure of the first part that did not go through.
+     */
+    public static class PartialCommitException extends IOException {
+        private final String branch;
+        private final List<String> committedOids;
+        private final int parts;
+
+        public PartialCommitException(String branch, List<String> committedOids, int parts, IOException cause) {
+            super("Only " + committedOids.size() + " of " + parts + " commits reached branch " + branch
+                + ": " + cause.getMessage(), cause);
+            this.branch = branch;
+            this.committedOids = List.copyOf(committedOids);
+            this.parts = parts;
+        }
+
+        public String getBranch() { return branch; }
+        /** OIDs of the commits that were created, oldest first; the last is the branch head. */
+        public List<String> getCommittedOids() { return committedOids; }
+        /** Number of commits the changes were split into. */
+        public int getParts() { return parts; }
+    }
+
     /**
      * Helper class to represent a file change.
+     * Content is held as a {@link ContentSource} and only read when the request is written.
      */
     public static class FileChange {
         private final String path;
         private final String content;
+        private final ContentSource source;
         private final boolean delete;
 
         public FileChange(String path, String content) {
             this.path = path;
             this.content = content;
+            this.source = ContentSource.ofText(content);
             this.delete = false;
         }
 
+        /**
+         * A change with binary content.
+         */
+        public FileChange(String path, byte[] content) {
+            this(path, ContentSource.ofBytes(content));
+        }
+
+        /**
+         * A change whose content is streamed from a local file.
+         */
+        public FileChange(String path, Path file) {
+            this(path, ContentSource.ofFile(file));
+        }
+
+        public FileChange(String path, ContentSource source) {
+            this.path = path;
+            this.content = null;
+            this.source = source;
+            this.delete = false;
+        }
+
+        /**
+         * A deletion. Only {@code delete = true} is accepted, since a change with neither content
+         * nor a deletion has nothing to commit; prefer {@link #deletion(String)}.
+         */
         public FileChange(String path, boolean delete) {
+            if (!delete) {
+                throw new IllegalArgumentException("Not a deletion and no content given for " + path);
+            }
             this.path = path;
             this.content = null;
-            this.delete = delete;
+            this.source = null;
+            this.delete = true;
+        }
+
+        /**
+         * A change that deletes the file at {@code path}.
+         */
+        public static FileChange deletion(String path) {
+            return new FileChange(path, true);
+        }
+
+        /**
+         * A change whose content is read from a freshly opened stream when the request is written.
+         */
+        public static FileChange fromStream(String path, ContentSource.StreamSupplier supplier) {
+            return new FileChange(path, ContentSource.ofStream(supplier));
         }
 
         public String getPath() { return path; }
+        /** The text content, or {@code null} for deletions and non-text sources. */
         public String getContent() { return content; }
+        /** The content source, or {@code null} for deletions. */
+        public ContentSource getSource() { return source; }
         public boolean isDelete() { return delete; }
+
+        /**
+         * Estimated bytes this change adds to the mutation body: the JSON-framed path, escaped
+         * and UTF-8 encoded as it is sent, plus, for additions, the base64 encoding of the
+         * content. Returns -1 if the content size is unknown until it is read.
+         */
+        public long estimatedPayloadBytes() throws IOException {
+            long framing = Utf8.size(CommitMutationBody.quote(path)) + 32;
+            if (delete) {
+                return framing;
+            }
+            long contentBytes = source.length();
+            if (contentBytes < 0) {
+                return -1;
+            }
+            return framing + ((contentBytes + 2) / 3) * 4;
+        }
     }
 
     /**
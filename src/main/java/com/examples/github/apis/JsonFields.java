@@ -0,0 +1,93 @@
+package com.examples.github.apis;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pulls selected fields out of a JSON response while streaming it.
+ * Only the requested dotted paths (e.g. {@code commit.sha}) are materialised; everything else,
+ * including the base64 {@code content} of a contents response, is skipped without building
+ * strings or a JSON tree. Paths select object members only, not array elements.
+ */
+final class JsonFields {
+
+    private JsonFields() {
+    }
+
+    /**
+     * Reads the given paths from the response body.
+     *
+     * @return the values found, keyed by path; objects and arrays are returned as parsed subtrees
+     */
+    static Map<String, JsonElement> extract(ResponseBody body, String... paths) throws IOException {
+        try (Reader reader = body.charStream()) {
+            return extract(reader, paths);
+        }
+    }
+
+    static Map<String, JsonElement> extract(Reader source, String... paths) throws IOException {
+        Set<String> wanted = Set.of(paths);
+        Map<String, JsonElement> found = new HashMap<>();
+        JsonReader reader = new JsonReader(source);
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            readObject(reader, "", wanted, found);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the string at the path, failing if the response did not contain it.
+     */
+    static String requireString(Map<String, JsonElement> fields, String path) throws IOException {
+        JsonElement value = fields.get(path);
+        if (value == null || value.isJsonNull()) {
+            throw new IOException("Missing '" + path + "' in response");
+        }
+        return value.getAsString();
+    }
+
+    /**
+     * @return false once every wanted path has been found and the rest of the input can be ignored
+     */
+    private static boolean readObject(JsonReader reader, String prefix, Set<String> wanted,
+                                      Map<String, JsonElement> found) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String path = prefix.isEmpty() ? reader.nextName() : prefix + "." + reader.nextName();
+
+            if (wanted.contains(path)) {
+                found.put(path, JsonParser.parseReader(reader));
+                if (found.size() == wanted.size()) {
+                    return false;
+                }
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT && isPrefixOfWanted(path, wanted)) {
+                if (!readObject(reader, path, wanted, found)) {
+                    return false;
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return true;
+    }
+
+    private static boolean isPrefixOfWanted(String path, Set<String> wanted) {
+        String prefix = path + ".";
+        for (String candidate : wanted) {
+            if (candidate.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
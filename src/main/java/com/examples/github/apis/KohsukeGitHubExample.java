@@ -1,54 +1,122 @@
 package com.examples.github.apis;
 
+import com.examples.github.git.GitHashes;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import okhttp3.OkHttpClient;
 import org.kohsuke.github.*;
+import org.kohsuke.github.extras.okhttp3.OkHttpGitHubConnector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Example using Kohsuke's github-api library.
  * This is the most mature and widely-used Java GitHub API client.
  */
-public class KohsukeGitHubExample {
+public class KohsukeGitHubExample implements FileUpdater {
     private static final Logger logger = LoggerFactory.getLogger(KohsukeGitHubExample.class);
+    private static final String GITHUB_API_URL = "https://api.github.com";
+
     private final GitHub github;
+    private final TokenPool tokens;
+    private final RepositoryCache repositories;
+    private final TreeSnapshotCache treeSnapshots;
+    private final AtomicLong skippedWrites = new AtomicLong();
 
     public KohsukeGitHubExample(String token) throws IOException {
+        this(TokenPool.of(token));
+    }
+
+    /**
+     * Creates a client that draws a token from the pool for every request, preferring the one
+     * with the most remaining budget.
+     */
+    public KohsukeGitHubExample(TokenPool tokens) throws IOException {
+        this(tokens, GitHubTransport.shared(), GITHUB_API_URL);
+    }
+
+    /**
+     * Creates a client on top of the given transport against another API root, such as
+     * GitHub Enterprise ({@code https://host/api/v3}) or a local stand-in server.
+     */
+    public KohsukeGitHubExample(TokenPool tokens, OkHttpClient transport, String apiUrl) throws IOException {
+        this(tokens, transport, apiUrl, 100, Duration.ofMinutes(10));
+    }
+
+    /**
+     * @param repositoryCacheSize repository handles kept between operations
+     * @param repositoryCacheTtl  how long a handle is reused before it is looked up again
+     */
+    public KohsukeGitHubExample(TokenPool tokens, OkHttpClient transport, String apiUrl,
+                                int repositoryCacheSize, Duration repositoryCacheTtl) throws IOException {
+        this(tokens, transport, apiUrl, repositoryCacheSize, repositoryCacheTtl, null);
+    }
+
+    /**
+     * @param treeSnapshots source of current blob SHAs for updates instead of a contents GET per
+     *                      file, or {@code null} to always GET them
+     */
+    public KohsukeGitHubExample(TokenPool tokens, OkHttpClient transport, String apiUrl,
+                                int repositoryCacheSize, Duration repositoryCacheTtl,
+                                TreeSnapshotCache treeSnapshots) throws IOException {
+        this.tokens = tokens;
+        this.repositories = new RepositoryCache(repositoryCacheSize, repositoryCacheTtl);
+        this.treeSnapshots = treeSnapshots;
+        // Route through the transport so repeated contents lookups are revalidated via ETag;
+        // the pool's interceptor records each token's budget from the responses
         this.github = new GitHubBuilder()
-            .withOAuthToken(token)
+            .withEndpoint(apiUrl)
+            .withAuthorizationProvider(() -> "Bearer " + tokens.acquire("core"))
+            .withConnector(new OkHttpGitHubConnector(
+                GitHubTransport.clientBuilder(transport, tokens.authenticator()).build()))
             .build();
 
-        logger.info("Connected to GitHub. Rate limit: {}/{}",
-            github.getRateLimit().getCore().getRemaining(),
-            github.getRateLimit().getCore().getLimit());
+        // No rate-limit probe here: construction stays network-free, and the budget is read
+        // from the headers of the first real call (see lastKnownRateLimit)
+        logger.info("GitHub client ready for {}", apiUrl);
+    }
+
+    /**
+     * Remaining core budget per (masked) token as of the latest responses, -1 where no call
+     * has been made yet. Makes no request of its own.
+     */
+    public Map<String, Long> lastKnownRateLimit() {
+        return tokens.remaining("core");
     }
 
     /**
      * Updates a single file without checking out the repository.
      * This uses GitHub's Contents API to update files directly.
+     *
+     * @return the new commit SHA, or {@code null} if the file already had this content
      */
+    @Override
     public String updateSingleFile(String owner, String repoName, String filePath,
                                    String branch, String newContent) throws IOException {
         logger.info("Updating file: {}/{}/{}", owner, repoName, filePath);
 
-        GHRepository repo = github.getRepository(owner + "/" + repoName);
-
-        // Get the current file to retrieve its SHA (required for updates)
-        GHContent existingFile = repo.getFileContent(filePath, branch);
-        String currentSha = existingFile.getSha();
-        logger.info("Current file SHA: {}", currentSha);
-
-        // Update the file
-        GHContentUpdateResponse response = repo.createContent()
-            .path(filePath)
-            .content(newContent)
-            .message("Update " + filePath + " via Kohsuke API")
-            .sha(currentSha)  // Required to prevent conflicts
-            .branch(branch)
-            .commit();
+        GHRepository repo = repository(owner, repoName);
+
+        // Update the file over its current SHA (required to prevent conflicts)
+        GHContentUpdateResponse response = commitOverCurrent(repo, owner, repoName, branch, filePath, newContent,
+            currentSha -> repo.createContent()
+                .path(filePath)
+                .content(newContent)
+                .message("Update " + filePath + " via Kohsuke API")
+                .sha(currentSha)
+                .branch(branch)
+                .commit());
+        if (response == null) {
+            return null;
+        }
 
         String commitSha = response.getCommit().getSHA1();
         logger.info("File updated successfully. Commit: {}", commitSha);
@@ -63,7 +131,7 @@ public class KohsukeGitHubExample {
                                String branch, String content) throws IOException {
         logger.info("Creating new file: {}/{}/{}", owner, repoName, filePath);
 
-        GHRepository repo = github.getRepository(owner + "/" + repoName);
+        GHRepository repo = repository(owner, repoName);
 
         GHContentUpdateResponse response = repo.createContent()
             .path(filePath)
@@ -85,22 +153,19 @@ public class KohsukeGitHubExample {
                                   String branch, byte[] binaryContent) throws IOException {
         logger.info("Updating binary file: {}/{}/{}", owner, repoName, filePath);
 
-        GHRepository repo = github.getRepository(owner + "/" + repoName);
-
-        // Get current file SHA
-        GHContent existingFile = repo.getFileContent(filePath, branch);
-        String currentSha = existingFile.getSha();
+        GHRepository repo = repository(owner, repoName);
 
         // Encode binary content as base64
         String base64Content = Base64.getEncoder().encodeToString(binaryContent);
 
-        GHContentUpdateResponse response = repo.createContent()
-            .path(filePath)
-            .content(base64Content)
-            .message("Update binary file " + filePath)
-            .sha(currentSha)
-            .branch(branch)
-            .commit();
+        GHContentUpdateResponse response = commitOverCurrent(repo, owner, repoName, branch, filePath, null,
+            currentSha -> repo.createContent()
+                .path(filePath)
+                .content(base64Content)
+                .message("Update binary file " + filePath)
+                .sha(currentSha)
+                .branch(branch)
+                .commit());
 
         return response.getCommit().getSHA1();
     }
@@ -117,20 +182,28 @@ public class KohsukeGitHubExample {
             throw new IllegalArgumentException("File paths and contents arrays must have same length");
         }
 
-        GHRepository repo = github.getRepository(owner + "/" + repoName);
+        GHRepository repo = repository(owner, repoName);
+        int updated = 0;
 
         for (int i = 0; i < filePaths.length; i++) {
             try {
-                GHContent existingFile = repo.getFileContent(filePaths[i], branch);
-
-                repo.createContent()
-                    .path(filePaths[i])
-                    .content(contents[i])
-                    .message("Update " + filePaths[i] + " (batch operation " + (i+1) + "/" + filePaths.length + ")")
-                    .sha(existingFile.getSha())
-                    .branch(branch)
-                    .commit();
-
+                String path = filePaths[i];
+                String content = contents[i];
+                String message = "Update " + path + " (batch operation " + (i+1) + "/" + filePaths.length + ")";
+                GHContentUpdateResponse response = commitOverCurrent(repo, owner, repoName, branch, path, content,
+                    currentSha -> repo.createContent()
+                        .path(path)
+                        .content(content)
+                        .message(message)
+                        .sha(currentSha)
+                        .branch(branch)
+                        .commit());
+                if (response == null) {
+                    logger.info("Skipped unchanged file {}/{}: {}", i+1, filePaths.length, path);
+                    continue;
+                }
+
+                updated++;
                 logger.info("Updated file {}/{}: {}", i+1, filePaths.length, filePaths[i]);
             } catch (IOException e) {
                 logger.error("Failed to update {}: {}", filePaths[i], e.getMessage());
@@ -138,7 +211,104 @@ public class KohsukeGitHubExample {
             }
         }
 
-        logger.info("All files updated successfully (in {} separate commits)", filePaths.length);
+        logger.info("All files updated successfully (in {} separate commits, {} unchanged)",
+            updated, filePaths.length - updated);
+    }
+
+    /**
+     * Applies independent updates, possibly across many repositories, using the given execution mode.
+     * Updates to the same branch stay sequential; different branches run concurrently.
+     */
+    public List<BatchUpdater.Result> updateMultipleFiles(List<BatchUpdater.FileUpdate> updates,
+                                                         BatchUpdater.ExecutionMode mode) throws InterruptedException {
+        return new BatchUpdater(mode).updateAll(updates, this);
+    }
+
+    /**
+     * Commits over the file's current blob SHA, taken from the tree snapshot cache when there is
+     * one. A snapshot SHA that turns out stale (409) is looked up again, once, and content the
+     * snapshot says is already there is checked against the branch before the write is skipped.
+     *
+     * @param newContent the new text, to skip writing identical content, or null to always write
+     * @return the commit response, or {@code null} if the content was unchanged
+     */
+    private GHContentUpdateResponse commitOverCurrent(GHRepository repo, String owner, String repoName,
+                                                      String branch, String filePath, String newContent,
+                                                      ContentCommit commit) throws IOException {
+        boolean useSnapshot = treeSnapshots != null;
+        while (true) {
+            String snapshotSha = useSnapshot ? treeSnapshots.blobSha(owner, repoName, branch, filePath) : null;
+            if (snapshotSha != null && newContent != null && snapshotSha.equals(GitHashes.blobSha(newContent))) {
+                // The snapshot may predate another writer's change; only the branch can confirm the skip
+                useSnapshot = false;
+                continue;
+            }
+            String currentSha = snapshotSha != null ? snapshotSha : repo.getFileContent(filePath, branch).getSha();
+            logger.info("Current file SHA: {}", currentSha);
+
+            // Skip the write when the branch already holds identical content
+            if (newContent != null && isUnchanged(currentSha, newContent)) {
+                logger.info("Content unchanged, skipping update of {}", filePath);
+                return null;
+            }
+
+            try {
+                GHContentUpdateResponse response = commit.commit(currentSha);
+                if (treeSnapshots != null) {
+                    List<String> parents = response.getCommit().getParentSHA1s();
+                    treeSnapshots.recordWrite(owner, repoName, branch, parents.size() == 1 ? parents.get(0) : null,
+                        response.getCommit().getSHA1(), filePath, response.getContent().getSha());
+                }
+                return response;
+            } catch (HttpException e) {
+                if (snapshotSha == null || e.getResponseCode() != 409) {
+                    throw e;
+                }
+                // Someone else changed the file since the snapshot was taken
+                treeSnapshots.invalidate(owner, repoName, branch);
+                useSnapshot = false;
+            }
+        }
+    }
+
+    /**
+     * One Contents API write over the given current blob SHA.
+     */
+    @FunctionalInterface
+    private interface ContentCommit {
+        GHContentUpdateResponse commit(String currentSha) throws IOException;
+    }
+
+    /**
+     * Repository handle for owner/name, from the cache when it is still fresh.
+     */
+    private GHRepository repository(String owner, String repoName) throws IOException {
+        return repositories.get(owner + "/" + repoName, github::getRepository);
+    }
+
+    /**
+     * Repository handles reused between operations, with hit/miss counts.
+     */
+    public RepositoryCache getRepositoryCache() {
+        return repositories;
+    }
+
+    /**
+     * Number of updates skipped because the content was already on the branch.
+     */
+    public long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
+    /**
+     * Compares the remote blob SHA with the git blob SHA of the new content, counting a match as a skipped write.
+     */
+    private boolean isUnchanged(String currentSha, String newContent) {
+        if (currentSha != null && currentSha.equals(GitHashes.blobSha(newContent))) {
+            skippedWrites.incrementAndGet();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -147,7 +317,7 @@ public class KohsukeGitHubExample {
     public String deleteFile(String owner, String repoName, String filePath, String branch) throws IOException {
         logger.info("Deleting file: {}/{}/{}", owner, repoName, filePath);
 
-        GHRepository repo = github.getRepository(owner + "/" + repoName);
+        GHRepository repo = repository(owner, repoName);
         GHContent fileToDelete = repo.getFileContent(filePath, branch);
 
         GHContentUpdateResponse response = fileToDelete.delete("Delete " + filePath, branch);
@@ -180,6 +350,7 @@ public class KohsukeGitHubExample {
             );
 
             logger.info("Operation completed. Commit SHA: {}", commitSha);
+            logger.info("Remaining rate limit: {}", example.lastKnownRateLimit());
 
         } catch (Exception e) {
             logger.error("Error: {}", e.getMessage(), e);
@@ -0,0 +1,523 @@
+package com.examples.github.apis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable path to blob SHA index sized for monorepo trees. Paths are kept sorted (by UTF-8
+ * bytes) and front-coded: each path stores only the suffix after the prefix it shares with the
+ * previous one, with a full path every {@value #BLOCK_SIZE} entries so lookups can binary-search
+ * those and decode at most one block. SHAs are packed as 20 raw bytes each, file modes as two.
+ * A million entries take tens of megabytes instead of the hundreds a {@code Map<String, String>}
+ * needs.
+ *
+ * <p>The arrays are read through {@link ByteBuffer}s, so an index {@link #writeTo written} to a
+ * file can be {@link #read read} back from a memory-mapped buffer without copying it onto the
+ * heap; see {@link TreeIndexStore}.
+ */
+public final class PathIndex {
+    static final int BLOCK_SIZE = 16;
+    /** Mode of a regular, non-executable file. */
+    public static final String FILE_MODE = "100644";
+    private static final int SHA_BYTES = 20;
+    private static final int MODE_BYTES = 2;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final PathIndex EMPTY = new Builder().build();
+
+    private final int size;
+    /** Per entry: varint shared prefix length, varint suffix length, suffix bytes. */
+    private final ByteBuffer paths;
+    /** Offset in {@link #paths} of each block's first entry. */
+    private final int[] blockOffsets;
+    private final ByteBuffer shas;
+    /** Per entry: the octal mode as an unsigned 16-bit value. */
+    private final ByteBuffer modes;
+    private final int maxPathBytes;
+
+    private PathIndex(int size, ByteBuffer paths, int[] blockOffsets, ByteBuffer shas, ByteBuffer modes,
+                      int maxPathBytes) {
+        this.size = size;
+        this.paths = paths;
+        this.blockOffsets = blockOffsets;
+        this.shas = shas;
+        this.modes = modes;
+        this.maxPathBytes = maxPathBytes;
+    }
+
+    public static PathIndex empty() {
+        return EMPTY;
+    }
+
+    public static PathIndex of(Map<String, String> blobShas) {
+        Builder builder = new Builder();
+        blobShas.forEach(builder::add);
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Blob SHA of the path as 40 hex characters, or {@code null} if it is not in the index.
+     */
+    public String blobSha(String path) {
+        int index = indexOf(path.getBytes(StandardCharsets.UTF_8));
+        return index < 0 ? null : sha(index);
+    }
+
+    /**
+     * File mode of the path, such as {@value #FILE_MODE}, or {@code null} if it is not in the index.
+     */
+    public String mode(String path) {
+        int index = indexOf(path.getBytes(StandardCharsets.UTF_8));
+        return index < 0 ? null : mode(index);
+    }
+
+    public boolean contains(String path) {
+        return indexOf(path.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    /**
+     * Calls the action with every path starting with {@code prefix} and its blob SHA, in path order.
+     */
+    public void forEachWithPrefix(String prefix, BiConsumer<String, String> action) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = new Cursor(lowerBound(prefixBytes));
+        while (cursor.hasNext()) {
+            cursor.next();
+            if (!cursor.startsWith(prefixBytes)) {
+                return;
+            }
+            action.accept(cursor.path(), cursor.sha());
+        }
+    }
+
+    /**
+     * Calls the action with every path matching the glob and its blob SHA, in path order.
+     * {@code *} and {@code ?} match within one path segment and {@code **} across segments;
+     * only the part before the first wildcard narrows the scan.
+     */
+    public void forEachMatching(String glob, BiConsumer<String, String> action) {
+        Predicate<String> matcher = globMatcher(glob);
+        forEachWithPrefix(literalPrefix(glob), (path, sha) -> {
+            if (matcher.test(path)) {
+                action.accept(path, sha);
+            }
+        });
+    }
+
+    /**
+     * Approximate memory retained by the index, in bytes: heap, or for a mapped index mostly
+     * pages of the file.
+     */
+    public long retainedBytes() {
+        // Object headers and array headers are ~16 bytes each
+        return 16 + 5 * 16L + paths.capacity() + 4L * blockOffsets.length + shas.capacity() + modes.capacity();
+    }
+
+    /**
+     * A copy of this index with the given paths changed: a SHA replaces or adds the file, keeping
+     * an existing file's mode, and a {@code null} SHA removes it.
+     */
+    PathIndex withChanges(Map<String, String> changes) {
+        Builder builder = new Builder();
+        Cursor cursor = new Cursor(0);
+        while (cursor.hasNext()) {
+            cursor.next();
+            String path = cursor.path();
+            if (!changes.containsKey(path)) {
+                builder.add(path, cursor.sha(), cursor.mode());
+            }
+        }
+        changes.forEach((path, sha) -> {
+            if (sha != null) {
+                builder.add(path, sha, Objects.requireNonNullElse(mode(path), FILE_MODE));
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Writes the index in the layout {@link #read} expects.
+     */
+    void writeTo(WritableByteChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + Integer.BYTES * blockOffsets.length);
+        header.putInt(size).putInt(maxPathBytes).putInt(blockOffsets.length).putInt(paths.capacity());
+        for (int offset : blockOffsets) {
+            header.putInt(offset);
+        }
+        writeFully(out, header.flip());
+        writeFully(out, paths.duplicate().clear());
+        writeFully(out, shas.duplicate().clear());
+        writeFully(out, modes.duplicate().clear());
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo} from the buffer's remaining bytes. The buffer is
+     * used in place, not copied; only the block offsets are read onto the heap.
+     *
+     * @throws IOException if the buffer does not hold an index of the size its header states
+     */
+    static PathIndex read(ByteBuffer buffer) throws IOException {
+        ByteBuffer in = buffer.slice();
+        if (in.remaining() < HEADER_BYTES) {
+            throw new IOException("Path index is truncated");
+        }
+        int size = in.getInt();
+        int maxPathBytes = in.getInt();
+        int blocks = in.getInt();
+        int pathBytes = in.getInt();
+        long expected = HEADER_BYTES + (long) Integer.BYTES * blocks + pathBytes
+            + (long) (SHA_BYTES + MODE_BYTES) * size;
+        if (size < 0 || blocks != (size + BLOCK_SIZE - 1) / BLOCK_SIZE || pathBytes < 0
+            || expected != in.capacity()) {
+            throw new IOException("Path index header does not match its length");
+        }
+
+        int[] blockOffsets = new int[blocks];
+        in.asIntBuffer().get(blockOffsets);
+        int position = HEADER_BYTES + Integer.BYTES * blocks;
+        ByteBuffer paths = in.slice(position, pathBytes);
+        position += pathBytes;
+        ByteBuffer shas = in.slice(position, SHA_BYTES * size);
+        position += SHA_BYTES * size;
+        ByteBuffer modes = in.slice(position, MODE_BYTES * size);
+        return new PathIndex(size, paths, blockOffsets, shas, modes, maxPathBytes);
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("entries=%d, retained=%d bytes", size, retainedBytes());
+    }
+
+    /**
+     * Whether the path matches the glob, with the semantics of {@link #forEachMatching}.
+     */
+    static Predicate<String> globMatcher(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString()).asMatchPredicate();
+    }
+
+    private static String literalPrefix(String glob) {
+        int end = 0;
+        while (end < glob.length() && glob.charAt(end) != '*' && glob.charAt(end) != '?') {
+            end++;
+        }
+        return glob.substring(0, end);
+    }
+
+    private String sha(int index) {
+        byte[] sha = new byte[SHA_BYTES];
+        shas.get(index * SHA_BYTES, sha);
+        return HEX.formatHex(sha);
+    }
+
+    private String mode(int index) {
+        return Integer.toOctalString(modes.getChar(index * MODE_BYTES));
+    }
+
+    private int indexOf(byte[] key) {
+        int block = lastBlockStartingAtOrBefore(key);
+        if (block < 0) {
+            return -1;
+        }
+        Cursor cursor = new Cursor(block * BLOCK_SIZE);
+        int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+        while (cursor.index() < end) {
+            cursor.next();
+            int cmp = cursor.compareTo(key);
+            if (cmp == 0) {
+                return cursor.index() - 1;
+            }
+            if (cmp > 0) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the first path not less than the key.
+     */
+    private int lowerBound(byte[] key) {
+        int block = Math.max(0, lastBlockStartingAtOrBefore(key));
+        Cursor cursor = new Cursor(block * BLOCK_SIZE);
+        while (cursor.hasNext()) {
+            int index = cursor.index();
+            cursor.next();
+            if (cursor.compareTo(key) >= 0) {
+                return index;
+            }
+        }
+        return size;
+    }
+
+    private int lastBlockStartingAtOrBefore(byte[] key) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = blockOffsets[mid];
+            // A block's first entry has no shared prefix: varint 0, then the length
+            int[] position = {offset + 1};
+            int length = readVarint(paths, position);
+            int cmp = compareUnsigned(paths, position[0], length, key);
+            if (cmp <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private static int compareUnsigned(ByteBuffer bytes, int offset, int length, byte[] key) {
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.compareUnsigned(bytes.get(offset + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static int readVarint(ByteBuffer bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes.get(position[0]++);
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static void writeVarint(ByteArray out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.add((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.add((byte) value);
+    }
+
+    /**
+     * Decodes entries forward from the start of a block, reusing one path buffer.
+     */
+    private final class Cursor {
+        private final byte[] path = new byte[maxPathBytes];
+        private final int[] position = new int[1];
+        private int length;
+        private int next;
+
+        /**
+         * Positions the cursor so that {@link #next} decodes entry {@code start}.
+         */
+        Cursor(int start) {
+            int block = start / BLOCK_SIZE;
+            next = block * BLOCK_SIZE;
+            if (next < size) {
+                position[0] = blockOffsets[block];
+            }
+            while (next < start) {
+                next();
+            }
+        }
+
+        boolean hasNext() {
+            return next < size;
+        }
+
+        /** Index of the entry {@link #next} would decode. */
+        int index() {
+            return next;
+        }
+
+        void next() {
+            int shared = readVarint(paths, position);
+            int suffix = readVarint(paths, position);
+            paths.get(position[0], path, shared, suffix);
+            position[0] += suffix;
+            length = shared + suffix;
+            next++;
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(path, 0, length, key, 0, key.length);
+        }
+
+        boolean startsWith(byte[] prefix) {
+            return length >= prefix.length && Arrays.equals(path, 0, prefix.length, prefix, 0, prefix.length);
+        }
+
+        String path() {
+            return new String(path, 0, length, StandardCharsets.UTF_8);
+        }
+
+        String sha() {
+            return PathIndex.this.sha(next - 1);
+        }
+
+        String mode() {
+            return PathIndex.this.mode(next - 1);
+        }
+    }
+
+    /**
+     * Collects entries in any order; safe to use from several threads. If a path is added more
+     * than once, the last SHA wins.
+     */
+    public static final class Builder {
+        private final List<byte[]> paths = new ArrayList<>();
+        private final ByteArray shas = new ByteArray();
+        private final ByteArray modes = new ByteArray();
+
+        private Builder() {
+        }
+
+        public Builder add(String path, String blobSha) {
+            return add(path, blobSha, FILE_MODE);
+        }
+
+        /**
+         * @param mode octal file mode as git lists it, such as {@value #FILE_MODE} or {@code 100755}
+         */
+        public synchronized Builder add(String path, String blobSha, String mode) {
+            if (blobSha.length() != 2 * SHA_BYTES) {
+                throw new IllegalArgumentException("Not a SHA-1: " + blobSha);
+            }
+            int modeBits = Integer.parseInt(mode, 8);
+            if (modeBits < 0 || modeBits > Character.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a file mode: " + mode);
+            }
+            paths.add(path.getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < SHA_BYTES; i++) {
+                shas.add((byte) HexFormat.fromHexDigits(blobSha, 2 * i, 2 * i + 2));
+            }
+            modes.add((byte) (modeBits >>> 8));
+            modes.add((byte) modeBits);
+            return this;
+        }
+
+        public synchronized int size() {
+            return paths.size();
+        }
+
+        public synchronized PathIndex build() {
+            Integer[] order = new Integer[paths.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // Stable, so among duplicates the last one added stays last
+            Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(paths.get(a), paths.get(b)));
+
+            ByteArray encoded = new ByteArray();
+            ByteArray packed = new ByteArray();
+            ByteArray packedModes = new ByteArray();
+            List<Integer> blockStarts = new ArrayList<>();
+            byte[] previous = null;
+            int count = 0;
+            int maxPathBytes = 0;
+            for (int i = 0; i < order.length; i++) {
+                byte[] path = paths.get(order[i]);
+                if (i + 1 < order.length && Arrays.equals(path, paths.get(order[i + 1]))) {
+                    continue;
+                }
+                int shared = 0;
+                if (count % BLOCK_SIZE == 0) {
+                    blockStarts.add(encoded.size());
+                } else {
+                    shared = Arrays.mismatch(previous, path);
+                    shared = shared < 0 ? path.length : Math.min(shared, Math.min(previous.length, path.length));
+                }
+                writeVarint(encoded, shared);
+                writeVarint(encoded, path.length - shared);
+                encoded.add(path, shared, path.length - shared);
+                packed.add(shas.bytes(), order[i] * SHA_BYTES, SHA_BYTES);
+                packedModes.add(modes.bytes(), order[i] * MODE_BYTES, MODE_BYTES);
+                maxPathBytes = Math.max(maxPathBytes, path.length);
+                previous = path;
+                count++;
+            }
+
+            int[] blockOffsets = blockStarts.stream().mapToInt(Integer::intValue).toArray();
+            return new PathIndex(count, ByteBuffer.wrap(encoded.toArray()), blockOffsets,
+                ByteBuffer.wrap(packed.toArray()), ByteBuffer.wrap(packedModes.toArray()), maxPathBytes);
+        }
+    }
+
+    /**
+     * Growable byte array without boxing.
+     */
+    private static final class ByteArray {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        void add(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        void add(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
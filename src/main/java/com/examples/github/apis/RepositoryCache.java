@@ -0,0 +1,112 @@
+package com.examples.github.apis;
+
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU-bounded, time-expiring cache of {@link GHRepository} handles keyed by full name, so
+ * repeated operations on a repository skip the {@code GET /repos/{owner}/{repo}} lookup.
+ * Entries expire after {@code ttl} so renames and transfers are picked up eventually.
+ *
+ * <p>A handle is bound to the {@code GitHub} instance, and thus the credentials, that loaded
+ * it, so each client keeps its own cache.
+ */
+public class RepositoryCache {
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    public RepositoryCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxEntries handles kept; the least recently used one is evicted beyond that
+     * @param ttl        how long a handle is reused after it was loaded
+     * @param clock      time source for expiry
+     */
+    public RepositoryCache(int maxEntries, Duration ttl, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached handle, or loads and caches it. Concurrent misses for the same
+     * repository may each load it; the last one wins.
+     */
+    GHRepository get(String fullName, Loader loader) throws IOException {
+        long now = clock.millis();
+        synchronized (this) {
+            Entry entry = entries.get(fullName);
+            if (entry != null && now < entry.expiresAtMillis()) {
+                hits.incrementAndGet();
+                return entry.repository();
+            }
+            if (entry != null) {
+                entries.remove(fullName);
+                expired.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        GHRepository repository = loader.load(fullName);
+        synchronized (this) {
+            entries.put(fullName, new Entry(repository, now + ttl.toMillis()));
+        }
+        return repository;
+    }
+
+    public synchronized void invalidate(String fullName) {
+        entries.remove(fullName);
+    }
+
+    /** Lookups served from the cache. */
+    public long getHits() { return hits.get(); }
+
+    /** Lookups that had to load the repository, including expired ones. */
+    public long getMisses() { return misses.get(); }
+
+    /** Entries dropped because their time to live had passed. */
+    public long getExpired() { return expired.get(); }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, expired=%d, size=%d", getHits(), getMisses(), getExpired(), size());
+    }
+
+    /**
+     * Loads a repository by full name.
+     */
+    @FunctionalInterface
+    interface Loader {
+        GHRepository load(String fullName) throws IOException;
+    }
+
+    private record Entry(GHRepository repository, long expiresAtMillis) {
+    }
+}
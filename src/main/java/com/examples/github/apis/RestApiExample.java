@@ -1,84 +1,208 @@
 package com.examples.github.apis;
 
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.apis.GraphQLApiExample.StaleHeadException;
+import com.examples.github.git.GitHashes;
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.KeyedConcurrencyLimiter;
+import com.examples.github.http.TokenPool;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Example using direct REST API calls with OkHttp.
  * This approach gives maximum control and flexibility.
  */
-public class RestApiExample {
+public class RestApiExample implements FileUpdater {
     private static final Logger logger = LoggerFactory.getLogger(RestApiExample.class);
     private static final String GITHUB_API_BASE = "https://api.github.com";
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final int DEFAULT_MAX_IN_FLIGHT_PER_REPOSITORY = 4;
+    private static final int DEFAULT_MAX_BLOB_UPLOADS_PER_REPOSITORY = 8;
 
     private final OkHttpClient client;
-    private final String token;
+    private final String apiBase;
+    private final TokenPool tokens;
     private final Gson gson;
+    private final KeyedConcurrencyLimiter repositoryLimiter;
+    private final KeyedConcurrencyLimiter blobUploadLimiter;
+    private final TreeSnapshotCache treeSnapshots;
+    private final AtomicLong skippedWrites = new AtomicLong();
 
     public RestApiExample(String token) {
-        this.token = token;
-        this.client = new OkHttpClient.Builder()
-            .addInterceptor(chain -> {
-                Request request = chain.request().newBuilder()
-                    .addHeader("Authorization", "Bearer " + token)
-                    .addHeader("Accept", "application/vnd.github+json")
-                    .addHeader("X-GitHub-Api-Version", "2022-11-28")
-                    .build();
-                return chain.proceed(request);
-            })
-            .build();
+        this(token, GitHubTransport.shared());
+    }
+
+    /**
+     * Creates a client on top of the given transport, sharing its connection pool and dispatcher.
+     */
+    public RestApiExample(String token, OkHttpClient transport) {
+        this(token, transport, DEFAULT_MAX_IN_FLIGHT_PER_REPOSITORY);
+    }
+
+    /**
+     * Creates a client whose asynchronous operations run at most {@code maxInFlightPerRepository}
+     * at a time per repository. Contents API writes to the same branch can conflict (409) when
+     * they overlap, so use 1 where strict ordering matters.
+     */
+    public RestApiExample(String token, OkHttpClient transport, int maxInFlightPerRepository) {
+        this(TokenPool.of(token), transport, maxInFlightPerRepository);
+    }
+
+    /**
+     * Creates a client that authenticates each request with the pool token that has the most
+     * remaining rate-limit budget.
+     */
+    public RestApiExample(TokenPool tokens, OkHttpClient transport, int maxInFlightPerRepository) {
+        this(tokens, transport, maxInFlightPerRepository, GITHUB_API_BASE);
+    }
+
+    /**
+     * Creates a client against another API root, such as GitHub Enterprise
+     * ({@code https://host/api/v3}) or a local stand-in server.
+     */
+    public RestApiExample(TokenPool tokens, OkHttpClient transport, int maxInFlightPerRepository,
+                          String apiBase) {
+        this(tokens, transport, maxInFlightPerRepository, apiBase, DEFAULT_MAX_BLOB_UPLOADS_PER_REPOSITORY);
+    }
+
+    /**
+     * Creates a client that uploads at most {@code maxBlobUploadsPerRepository} blobs at a time
+     * per repository while building a {@link #createAtomicCommit} commit.
+     */
+    public RestApiExample(TokenPool tokens, OkHttpClient transport, int maxInFlightPerRepository,
+                          String apiBase, int maxBlobUploadsPerRepository) {
+        this(tokens, transport, maxInFlightPerRepository, apiBase, maxBlobUploadsPerRepository, null);
+    }
+
+    /**
+     * Creates a client that takes the current blob SHAs for {@link #updateSingleFile} and
+     * {@link #deleteFile} from {@code treeSnapshots} instead of a contents GET per file, or
+     * always GETs them if it is {@code null}.
+     */
+    public RestApiExample(TokenPool tokens, OkHttpClient transport, int maxInFlightPerRepository,
+                          String apiBase, int maxBlobUploadsPerRepository, TreeSnapshotCache treeSnapshots) {
+        this.tokens = tokens;
+        this.apiBase = apiBase;
+        this.client = GitHubTransport.clientBuilder(transport, tokens.authenticator(), chain -> {
+            Request request = chain.request().newBuilder()
+                .addHeader("Accept", "application/vnd.github+json")
+                .addHeader("X-GitHub-Api-Version", "2022-11-28")
+                .build();
+            return chain.proceed(request);
+        }).build();
         this.gson = new Gson();
+        this.repositoryLimiter = new KeyedConcurrencyLimiter(maxInFlightPerRepository);
+        this.blobUploadLimiter = new KeyedConcurrencyLimiter(maxBlobUploadsPerRepository);
+        this.treeSnapshots = treeSnapshots;
     }
 
     /**
      * Updates a single file using GitHub REST API.
      * Endpoint: PUT /repos/{owner}/{repo}/contents/{path}
+     *
+     * @return the new commit SHA, or {@code null} if the file already had this content
      */
+    @Override
     public String updateSingleFile(String owner, String repo, String filePath,
                                   String branch, String newContent) throws IOException {
         logger.info("Updating file via REST API: {}/{}/{}", owner, repo, filePath);
+        return updateFile(owner, repo, filePath, branch, newContent.getBytes(StandardCharsets.UTF_8), true);
+    }
 
+    /**
+     * @param useSnapshot whether the current SHA may come from the tree snapshot cache. A snapshot
+     *                    SHA is only used as the write's precondition: a stale one is rejected with
+     *                    409, while a skip as unchanged is confirmed with a contents GET first
+     */
+    private String updateFile(String owner, String repo, String filePath, String branch,
+                              byte[] contentBytes, boolean useSnapshot) throws IOException {
         // Step 1: Get current file to retrieve SHA
-        String currentSha = getFileSha(owner, repo, filePath, branch);
+        String snapshotSha = useSnapshot ? snapshotSha(owner, repo, filePath, branch) : null;
+        String currentSha = snapshotSha != null ? snapshotSha : getFileSha(owner, repo, filePath, branch);
         logger.info("Current file SHA: {}", currentSha);
 
-        // Step 2: Prepare update request
-        String url = String.format("%s/repos/%s/%s/contents/%s",
-            GITHUB_API_BASE, owner, repo, filePath);
-
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("message", "Update " + filePath + " via REST API");
-        requestBody.addProperty("content",
-            Base64.getEncoder().encodeToString(newContent.getBytes(StandardCharsets.UTF_8)));
-        requestBody.addProperty("sha", currentSha);
-        requestBody.addProperty("branch", branch);
+        // Skip the write when the branch already holds identical content
+        String newSha = GitHashes.blobSha(contentBytes);
+        if (newSha.equals(snapshotSha)) {
+            // The snapshot may predate another writer's change; only the branch can confirm the skip
+            return updateFile(owner, repo, filePath, branch, contentBytes, false);
+        }
+        if (isUnchanged(currentSha, newSha, filePath)) {
+            return null;
+        }
 
-        Request request = new Request.Builder()
-            .url(url)
-            .put(RequestBody.create(gson.toJson(requestBody), JSON))
-            .build();
+        // Step 2: Prepare update request
+        Request request = updateRequest(owner, repo, filePath, branch, contentBytes, currentSha);
 
         // Step 3: Execute request
         try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("Failed to update file: " + response.code() + " - " + errorBody);
+            if (response.code() != 409 || snapshotSha == null) {
+                CommitRef commit = readCommit(response, "update file");
+                recordWrite(owner, repo, branch, commit, filePath, newSha);
+                logger.info("File updated successfully via REST. Commit: {}", commit.sha());
+                return commit.sha();
             }
+        }
+        // Someone else changed the file since the snapshot was taken; retried once the 409 is
+        // closed, so the retry does not wait on a host slot this call still holds
+        treeSnapshots.invalidate(owner, repo, branch);
+        return updateFile(owner, repo, filePath, branch, contentBytes, false);
+    }
 
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-            String commitSha = jsonResponse.getAsJsonObject("commit").get("sha").getAsString();
+    /**
+     * Asynchronous variant of {@link #updateSingleFile}, bounded per repository.
+     */
+    public CompletableFuture<String> updateSingleFileAsync(String owner, String repo, String filePath,
+                                                           String branch, String newContent) {
+        byte[] contentBytes = newContent.getBytes(StandardCharsets.UTF_8);
+
+        return repositoryLimiter.submit(owner + "/" + repo, () ->
+            execute(fileShaRequest(owner, repo, filePath, branch), this::readFileSha)
+                .thenCompose(currentSha -> {
+                    if (isUnchanged(currentSha, GitHashes.blobSha(contentBytes), filePath)) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return execute(updateRequest(owner, repo, filePath, branch, contentBytes, currentSha),
+                        response -> readCommitSha(response, "update file"));
+                }));
+    }
 
-            logger.info("File updated successfully via REST. Commit: {}", commitSha);
-            return commitSha;
+    /**
+     * The file's blob SHA from the tree snapshot cache, or {@code null} if there is no cache or
+     * the snapshot has no such file (it may have been created since).
+     */
+    private String snapshotSha(String owner, String repo, String filePath, String branch) throws IOException {
+        return treeSnapshots != null ? treeSnapshots.blobSha(owner, repo, branch, filePath) : null;
+    }
+
+    private void recordWrite(String owner, String repo, String branch, CommitRef commit,
+                             String filePath, String blobSha) {
+        if (treeSnapshots != null) {
+            treeSnapshots.recordWrite(owner, repo, branch, commit.parentSha(), commit.sha(), filePath, blobSha);
         }
     }
 
@@ -87,122 +211,581 @@ public class RestApiExample {
      * Endpoint: GET /repos/{owner}/{repo}/contents/{path}
      */
     private String getFileSha(String owner, String repo, String filePath, String branch) throws IOException {
-        String url = String.format("%s/repos/%s/%s/contents/%s?ref=%s",
-            GITHUB_API_BASE, owner, repo, filePath, branch);
+        Request request = fileShaRequest(owner, repo, filePath, branch);
+
+        try (Response response = client.newCall(request).execute()) {
+            return readFileSha(response);
+        }
+    }
+
+    /**
+     * Creates a new file.
+     * Endpoint: PUT /repos/{owner}/{repo}/contents/{path}
+     */
+    public String createNewFile(String owner, String repo, String filePath,
+                               String branch, String content) throws IOException {
+        logger.info("Creating new file via REST API: {}/{}/{}", owner, repo, filePath);
+
+        Request request = createRequest(owner, repo, filePath, branch, content);
+
+        try (Response response = client.newCall(request).execute()) {
+            String commitSha = readCommitSha(response, "create file");
+            logger.info("File created successfully. Commit: {}", commitSha);
+            return commitSha;
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #createNewFile}, bounded per repository.
+     */
+    public CompletableFuture<String> createNewFileAsync(String owner, String repo, String filePath,
+                                                        String branch, String content) {
+        return repositoryLimiter.submit(owner + "/" + repo, () ->
+            execute(createRequest(owner, repo, filePath, branch, content),
+                response -> readCommitSha(response, "create file")));
+    }
+
+    /**
+     * Deletes a file.
+     * Endpoint: DELETE /repos/{owner}/{repo}/contents/{path}
+     */
+    public String deleteFile(String owner, String repo, String filePath, String branch) throws IOException {
+        logger.info("Deleting file via REST API: {}/{}/{}", owner, repo, filePath);
+        return deleteFile(owner, repo, filePath, branch, true);
+    }
+
+    private String deleteFile(String owner, String repo, String filePath, String branch,
+                              boolean useSnapshot) throws IOException {
+        String snapshotSha = useSnapshot ? snapshotSha(owner, repo, filePath, branch) : null;
+        String currentSha = snapshotSha != null ? snapshotSha : getFileSha(owner, repo, filePath, branch);
+        Request request = deleteRequest(owner, repo, filePath, branch, currentSha);
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() != 409 || snapshotSha == null) {
+                CommitRef commit = readCommit(response, "delete file");
+                recordWrite(owner, repo, branch, commit, filePath, null);
+                logger.info("File deleted successfully. Commit: {}", commit.sha());
+                return commit.sha();
+            }
+        }
+        treeSnapshots.invalidate(owner, repo, branch);
+        return deleteFile(owner, repo, filePath, branch, false);
+    }
+
+    /**
+     * Asynchronous variant of {@link #deleteFile}, bounded per repository.
+     */
+    public CompletableFuture<String> deleteFileAsync(String owner, String repo, String filePath, String branch) {
+        return repositoryLimiter.submit(owner + "/" + repo, () ->
+            execute(fileShaRequest(owner, repo, filePath, branch), this::readFileSha)
+                .thenCompose(currentSha -> execute(deleteRequest(owner, repo, filePath, branch, currentSha),
+                    response -> readCommitSha(response, "delete file"))));
+    }
+
+    /**
+     * Commits all file changes at once through the Git Data API: once the head is known, the
+     * blobs are uploaded in parallel, then a single tree is created on top of the head commit's
+     * tree, then a commit, and the branch is fast-forwarded to it. Unlike a GraphQL mutation, the
+     * changeset is not bounded by the size of one request. Changed files keep their mode in the
+     * base tree, and deletions of paths the base tree does not have are dropped.
+     * Endpoints: GET branches/{branch}, POST git/blobs, GET git/trees/{tree_sha}?recursive=1
+     * unless the tree snapshot is at the head, POST git/trees, POST git/commits,
+     * PATCH git/refs/heads/{branch}
+     *
+     * @return the new commit SHA
+     * @throws StaleHeadException if the branch moved while the commit was being built
+     */
+    public String createAtomicCommit(String owner, String repo, String branch,
+                                     String commitMessage, FileChange[] fileChanges) throws IOException {
+        logger.info("Creating Git Data commit with {} file changes", fileChanges.length);
+
+        // Resolve the head first, so a branch that cannot be read costs no uploads
+        String[] head = getBranchHead(owner, repo, branch);
+        String headSha = head[0];
+        String baseTree = head[1];
+        // The base tree's modes are read while the blobs upload
+        List<CompletableFuture<String>> uploads = uploadBlobs(owner, repo, fileChanges);
+        Map<String, String> baseModes = baseModes(owner, repo, branch, headSha, baseTree, fileChanges);
+        List<String> blobShas = await(uploads);
+
+        String treeSha = createTree(owner, repo, baseTree, fileChanges, blobShas, baseModes);
+        String commitSha = createCommit(owner, repo, commitMessage, treeSha, headSha);
+        updateBranchRef(owner, repo, branch, headSha, commitSha);
+
+        logger.info("Git Data commit created: {}", commitSha);
+        return commitSha;
+    }
 
+    /**
+     * Starts one bounded upload per added file; deletions complete immediately with null.
+     */
+    private List<CompletableFuture<String>> uploadBlobs(String owner, String repo, FileChange[] fileChanges) {
+        List<CompletableFuture<String>> uploads = new ArrayList<>(fileChanges.length);
+        for (FileChange change : fileChanges) {
+            if (change.isDelete()) {
+                uploads.add(CompletableFuture.completedFuture(null));
+            } else {
+                uploads.add(blobUploadLimiter.submit(owner + "/" + repo, () ->
+                    execute(blobRequest(owner, repo, change.getSource()),
+                        response -> readSha(response, "create blob " + change.getPath(), "sha"))));
+            }
+        }
+        return uploads;
+    }
+
+    /**
+     * Head commit SHA and its tree SHA.
+     * Endpoint: GET /repos/{owner}/{repo}/branches/{branch}
+     */
+    private String[] getBranchHead(String owner, String repo, String branch) throws IOException {
         Request request = new Request.Builder()
-            .url(url)
+            .url(String.format("%s/repos/%s/%s/branches/%s", apiBase, owner, repo, branch))
             .get()
             .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) {
-                throw new IOException("Failed to get file SHA: " + response.code());
+                throw new IOException("Failed to get branch " + branch + ": " + response.code());
             }
-
-            String responseBody = response.body().string();
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            return json.get("sha").getAsString();
+            Map<String, JsonElement> fields = JsonFields.extract(response.body(), "commit.sha", "commit.commit.tree.sha");
+            return new String[] {
+                JsonFields.requireString(fields, "commit.sha"),
+                JsonFields.requireString(fields, "commit.commit.tree.sha")
+            };
         }
     }
 
     /**
-     * Creates a new file.
-     * Endpoint: PUT /repos/{owner}/{repo}/contents/{path}
+     * Modes of the changed paths that are files in the base tree; paths not in the map are not.
+     * They come from the tree snapshot if it is at the head commit, and otherwise from one
+     * recursive listing of the base tree. Paths a truncated listing did not reach are looked up
+     * in the listings of their directories.
      */
-    public String createNewFile(String owner, String repo, String filePath,
-                               String branch, String content) throws IOException {
-        logger.info("Creating new file via REST API: {}/{}/{}", owner, repo, filePath);
+    private Map<String, String> baseModes(String owner, String repo, String branch, String headSha,
+                                          String baseTree, FileChange[] fileChanges) throws IOException {
+        Map<String, String> modes = new HashMap<>();
+        TreeSnapshot snapshot = treeSnapshots != null ? treeSnapshots.snapshot(owner, repo, branch) : null;
+        if (snapshot != null && headSha.equals(snapshot.getCommitSha())) {
+            for (FileChange change : fileChanges) {
+                String mode = snapshot.mode(change.getPath());
+                if (mode != null) {
+                    modes.put(change.getPath(), mode);
+                }
+            }
+            return modes;
+        }
 
-        String url = String.format("%s/repos/%s/%s/contents/%s",
-            GITHUB_API_BASE, owner, repo, filePath);
+        Set<String> unresolved = new HashSet<>();
+        for (FileChange change : fileChanges) {
+            unresolved.add(change.getPath());
+        }
+        if (!listBaseModes(owner, repo, baseTree, unresolved, modes) || unresolved.isEmpty()) {
+            return modes;
+        }
 
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("message", "Create " + filePath + " via REST API");
-        requestBody.addProperty("content",
-            Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8)));
-        requestBody.addProperty("branch", branch);
+        logger.info("Listing of tree {} truncated, looking up {} paths by directory", baseTree, unresolved.size());
+        // Directory path -> its entries, "" being the base tree itself
+        Map<String, Map<String, TreeEntry>> directories = new HashMap<>();
+        for (String path : unresolved) {
+            int slash = path.lastIndexOf('/');
+            TreeEntry entry = listDirectory(owner, repo, baseTree, slash < 0 ? "" : path.substring(0, slash), directories)
+                .get(path.substring(slash + 1));
+            if (entry != null && "blob".equals(entry.type())) {
+                modes.put(path, entry.mode());
+            }
+        }
+        return modes;
+    }
 
+    /**
+     * Streams the recursive listing of the base tree, moving each of the given paths it lists as
+     * a file from {@code unresolved} into {@code modes}.
+     * Endpoint: GET /repos/{owner}/{repo}/git/trees/{tree_sha}?recursive=1
+     *
+     * @return whether GitHub truncated the listing, leaving the remaining paths undecided
+     */
+    private boolean listBaseModes(String owner, String repo, String baseTree, Set<String> unresolved,
+                                  Map<String, String> modes) throws IOException {
         Request request = new Request.Builder()
-            .url(url)
-            .put(RequestBody.create(gson.toJson(requestBody), JSON))
+            .url(String.format("%s/repos/%s/%s/git/trees/%s?recursive=1", apiBase, owner, repo, baseTree))
+            .get()
             .build();
 
         try (Response response = client.newCall(request).execute()) {
             if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("Failed to create file: " + response.code() + " - " + errorBody);
+                throw new IOException("Failed to get tree " + baseTree + ": " + response.code());
             }
+            boolean truncated = false;
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "tree" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            String path = null;
+                            String mode = null;
+                            String type = null;
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                switch (reader.nextName()) {
+                                    case "path" -> path = reader.nextString();
+                                    case "mode" -> mode = reader.nextString();
+                                    case "type" -> type = reader.nextString();
+                                    default -> reader.skipValue();
+                                }
+                            }
+                            reader.endObject();
+                            if ("blob".equals(type) && unresolved.remove(path)) {
+                                modes.put(path, mode);
+                            }
+                        }
+                        reader.endArray();
+                    }
+                    case "truncated" -> truncated = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            return truncated;
+        }
+    }
 
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-            String commitSha = jsonResponse.getAsJsonObject("commit").get("sha").getAsString();
+    /**
+     * Entries of a directory of the base tree by name, empty if there is no such directory.
+     */
+    private Map<String, TreeEntry> listDirectory(String owner, String repo, String baseTree, String directory,
+                                                 Map<String, Map<String, TreeEntry>> directories) throws IOException {
+        Map<String, TreeEntry> entries = directories.get(directory);
+        if (entries != null) {
+            return entries;
+        }
 
-            logger.info("File created successfully. Commit: {}", commitSha);
-            return commitSha;
+        String treeSha = baseTree;
+        if (!directory.isEmpty()) {
+            int slash = directory.lastIndexOf('/');
+            TreeEntry parent = listDirectory(owner, repo, baseTree, slash < 0 ? "" : directory.substring(0, slash),
+                directories).get(directory.substring(slash + 1));
+            treeSha = parent != null && "tree".equals(parent.type()) ? parent.sha() : null;
         }
+        entries = treeSha != null ? getTreeEntries(owner, repo, treeSha) : Map.of();
+        directories.put(directory, entries);
+        return entries;
     }
 
     /**
-     * Deletes a file.
-     * Endpoint: DELETE /repos/{owner}/{repo}/contents/{path}
+     * Endpoint: GET /repos/{owner}/{repo}/git/trees/{tree_sha}
      */
-    public String deleteFile(String owner, String repo, String filePath, String branch) throws IOException {
-        logger.info("Deleting file via REST API: {}/{}/{}", owner, repo, filePath);
+    private Map<String, TreeEntry> getTreeEntries(String owner, String repo, String treeSha) throws IOException {
+        Request request = new Request.Builder()
+            .url(String.format("%s/repos/%s/%s/git/trees/%s", apiBase, owner, repo, treeSha))
+            .get()
+            .build();
 
-        String currentSha = getFileSha(owner, repo, filePath, branch);
-        String url = String.format("%s/repos/%s/%s/contents/%s",
-            GITHUB_API_BASE, owner, repo, filePath);
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to get tree " + treeSha + ": " + response.code());
+            }
+            JsonObject tree = JsonParser.parseReader(response.body().charStream()).getAsJsonObject();
+            Map<String, TreeEntry> entries = new HashMap<>();
+            for (JsonElement element : tree.getAsJsonArray("tree")) {
+                JsonObject entry = element.getAsJsonObject();
+                entries.put(entry.get("path").getAsString(), new TreeEntry(entry.get("mode").getAsString(),
+                    entry.get("type").getAsString(), entry.get("sha").getAsString()));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Endpoint: POST /repos/{owner}/{repo}/git/trees
+     *
+     * @param baseModes modes of the changed paths that exist in the base tree; other paths are
+     *                  new files, and deleting one is left out since GitHub rejects it with 422
+     */
+    private String createTree(String owner, String repo, String baseTree, FileChange[] fileChanges,
+                              List<String> blobShas, Map<String, String> baseModes) throws IOException {
+        JsonArray entries = new JsonArray(fileChanges.length);
+        for (int i = 0; i < fileChanges.length; i++) {
+            String mode = baseModes.get(fileChanges[i].getPath());
+            if (blobShas.get(i) == null && mode == null) {
+                logger.debug("Skipping deletion of {}, which is not in the base tree", fileChanges[i].getPath());
+                continue;
+            }
+            JsonObject entry = new JsonObject();
+            entry.addProperty("path", fileChanges[i].getPath());
+            // Existing files keep their mode (executable, symlink); new ones are regular files
+            entry.addProperty("mode", mode != null ? mode : PathIndex.FILE_MODE);
+            entry.addProperty("type", "blob");
+            // A null SHA removes the path from the base tree
+            entry.add("sha", blobShas.get(i) == null ? JsonNull.INSTANCE : new JsonPrimitive(blobShas.get(i)));
+            entries.add(entry);
+        }
 
         JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("message", "Delete " + filePath + " via REST API");
-        requestBody.addProperty("sha", currentSha);
-        requestBody.addProperty("branch", branch);
+        requestBody.addProperty("base_tree", baseTree);
+        requestBody.add("tree", entries);
+
+        // JsonElement.toString keeps the null SHAs, which Gson.toJson would drop
+        return post(owner, repo, "git/trees", requestBody.toString(), "create tree");
+    }
+
+    /**
+     * Endpoint: POST /repos/{owner}/{repo}/git/commits
+     */
+    private String createCommit(String owner, String repo, String commitMessage,
+                                String treeSha, String parentSha) throws IOException {
+        JsonArray parents = new JsonArray(1);
+        parents.add(parentSha);
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("message", commitMessage);
+        requestBody.addProperty("tree", treeSha);
+        requestBody.add("parents", parents);
+
+        return post(owner, repo, "git/commits", gson.toJson(requestBody), "create commit");
+    }
+
+    /**
+     * Fast-forwards the branch to the commit. GitHub answers 422 if the branch is no longer at
+     * the commit's parent.
+     * Endpoint: PATCH /repos/{owner}/{repo}/git/refs/heads/{branch}
+     */
+    private void updateBranchRef(String owner, String repo, String branch,
+                                 String expectedHeadSha, String commitSha) throws IOException {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("sha", commitSha);
+        requestBody.addProperty("force", false);
 
         Request request = new Request.Builder()
-            .url(url)
-            .delete(RequestBody.create(gson.toJson(requestBody), JSON))
+            .url(String.format("%s/repos/%s/%s/git/refs/heads/%s", apiBase, owner, repo, branch))
+            .patch(RequestBody.create(gson.toJson(requestBody), JSON))
             .build();
 
         try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Failed to delete file: " + response.code());
+            if (response.code() == 422) {
+                throw new StaleHeadException(branch, expectedHeadSha, response.body().string());
             }
+            readSha(response, "update branch " + branch, "object.sha");
+        }
+    }
 
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = gson.fromJson(responseBody, JsonObject.class);
-            String commitSha = jsonResponse.getAsJsonObject("commit").get("sha").getAsString();
+    private String post(String owner, String repo, String endpoint, String json, String action) throws IOException {
+        Request request = new Request.Builder()
+            .url(String.format("%s/repos/%s/%s/%s", apiBase, owner, repo, endpoint))
+            .post(RequestBody.create(json, JSON))
+            .build();
 
-            logger.info("File deleted successfully. Commit: {}", commitSha);
-            return commitSha;
+        try (Response response = client.newCall(request).execute()) {
+            return readSha(response, action, "sha");
         }
     }
 
+    /**
+     * Number of updates skipped because the content was already on the branch.
+     */
+    public long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
     /**
      * Gets current rate limit information.
      * Endpoint: GET /rate_limit
      */
     public void checkRateLimit() throws IOException {
-        String url = GITHUB_API_BASE + "/rate_limit";
+        try (Response response = client.newCall(rateLimitRequest()).execute()) {
+            logRateLimit(response);
+        }
+    }
 
-        Request request = new Request.Builder()
+    /**
+     * Asynchronous variant of {@link #checkRateLimit}.
+     */
+    public CompletableFuture<Void> checkRateLimitAsync() {
+        return execute(rateLimitRequest(), response -> {
+            logRateLimit(response);
+            return null;
+        });
+    }
+
+    private Request fileShaRequest(String owner, String repo, String filePath, String branch) {
+        String url = String.format("%s/repos/%s/%s/contents/%s?ref=%s",
+            apiBase, owner, repo, filePath, branch);
+
+        return new Request.Builder()
             .url(url)
             .get()
             .build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                String responseBody = response.body().string();
-                JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-                JsonObject core = json.getAsJsonObject("resources").getAsJsonObject("core");
-
-                logger.info("Rate limit: {}/{} remaining",
-                    core.get("remaining").getAsInt(),
-                    core.get("limit").getAsInt());
-                logger.info("Reset at: {}",
-                    new java.util.Date(core.get("reset").getAsLong() * 1000));
+    /**
+     * Package-private so the request-encoding benchmarks measure the real request.
+     */
+    Request updateRequest(String owner, String repo, String filePath, String branch,
+                          byte[] contentBytes, String currentSha) {
+        String url = String.format("%s/repos/%s/%s/contents/%s",
+            apiBase, owner, repo, filePath);
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("message", "Update " + filePath + " via REST API");
+        requestBody.addProperty("content", Base64.getEncoder().encodeToString(contentBytes));
+        requestBody.addProperty("sha", currentSha);
+        requestBody.addProperty("branch", branch);
+
+        return new Request.Builder()
+            .url(url)
+            .put(RequestBody.create(gson.toJson(requestBody), JSON))
+            .build();
+    }
+
+    private Request createRequest(String owner, String repo, String filePath, String branch, String content) {
+        String url = String.format("%s/repos/%s/%s/contents/%s",
+            apiBase, owner, repo, filePath);
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("message", "Create " + filePath + " via REST API");
+        requestBody.addProperty("content",
+            Base64.getEncoder().encodeToString(content.getBytes(StandardCharsets.UTF_8)));
+        requestBody.addProperty("branch", branch);
+
+        return new Request.Builder()
+            .url(url)
+            .put(RequestBody.create(gson.toJson(requestBody), JSON))
+            .build();
+    }
+
+    private Request deleteRequest(String owner, String repo, String filePath, String branch, String currentSha) {
+        String url = String.format("%s/repos/%s/%s/contents/%s",
+            apiBase, owner, repo, filePath);
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("message", "Delete " + filePath + " via REST API");
+        requestBody.addProperty("sha", currentSha);
+        requestBody.addProperty("branch", branch);
+
+        return new Request.Builder()
+            .url(url)
+            .delete(RequestBody.create(gson.toJson(requestBody), JSON))
+            .build();
+    }
+
+    private Request blobRequest(String owner, String repo, ContentSource content) {
+        return new Request.Builder()
+            .url(String.format("%s/repos/%s/%s/git/blobs", apiBase, owner, repo))
+            .post(new BlobRequestBody(content))
+            .build();
+    }
+
+    private Request rateLimitRequest() {
+        return new Request.Builder()
+            .url(apiBase + "/rate_limit")
+            .get()
+            .build();
+    }
+
+    private String readFileSha(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to get file SHA: " + response.code());
+        }
+
+        // Stream past the base64 content instead of buffering the whole response
+        return JsonFields.requireString(JsonFields.extract(response.body(), "sha"), "sha");
+    }
+
+    private String readCommitSha(Response response, String action) throws IOException {
+        return readSha(response, action, "commit.sha");
+    }
+
+    /**
+     * The commit of a Contents API write response, with its parent.
+     */
+    private CommitRef readCommit(Response response, String action) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            throw new IOException("Failed to " + action + ": " + response.code() + " - " + errorBody);
+        }
+
+        Map<String, JsonElement> fields = JsonFields.extract(response.body(), "commit.sha", "commit.parents");
+        JsonElement parents = fields.get("commit.parents");
+        String parentSha = parents != null && parents.isJsonArray() && parents.getAsJsonArray().size() == 1
+            ? parents.getAsJsonArray().get(0).getAsJsonObject().get("sha").getAsString()
+            : null;
+        return new CommitRef(JsonFields.requireString(fields, "commit.sha"), parentSha);
+    }
+
+    private String readSha(Response response, String action, String path) throws IOException {
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            throw new IOException("Failed to " + action + ": " + response.code() + " - " + errorBody);
+        }
+
+        return JsonFields.requireString(JsonFields.extract(response.body(), path), path);
+    }
+
+    private void logRateLimit(Response response) throws IOException {
+        if (response.isSuccessful()) {
+            JsonObject core = JsonFields.extract(response.body(), "resources.core")
+                .get("resources.core").getAsJsonObject();
+
+            logger.info("Rate limit: {}/{} remaining",
+                core.get("remaining").getAsInt(),
+                core.get("limit").getAsInt());
+            logger.info("Reset at: {}",
+                new java.util.Date(core.get("reset").getAsLong() * 1000));
+        }
+    }
+
+    private boolean isUnchanged(String currentSha, String newSha, String filePath) {
+        if (currentSha.equals(newSha)) {
+            skippedWrites.incrementAndGet();
+            logger.info("Content unchanged, skipping update of {}", filePath);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Enqueues the request and completes with the handler's result; the response is always closed.
+     */
+    private <T> CompletableFuture<T> execute(Request request, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(handler.handle(response));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
             }
+        });
+        return future;
+    }
+
+    /**
+     * Waits for all the futures, failing with the first failure once all have completed.
+     */
+    private static <T> List<T> await(List<CompletableFuture<T>> futures) throws IOException {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading blobs");
         }
+        List<T> results = new ArrayList<>(futures.size());
+        futures.forEach(future -> results.add(future.join()));
+        return results;
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
     }
 
     /**
@@ -236,4 +819,16 @@ public class RestApiExample {
             logger.error("Error: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * A commit SHA and its parent, {@code null} unless the commit has exactly one.
+     */
+    private record CommitRef(String sha, String parentSha) {
+    }
+
+    /**
+     * One entry of a tree listing; {@code type} is {@code blob}, {@code tree} or {@code commit}.
+     */
+    private record TreeEntry(String mode, String type, String sha) {
+    }
 }
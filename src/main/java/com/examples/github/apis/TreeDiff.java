@@ -0,0 +1,100 @@
+package com.examples.github.apis;
+
+import com.examples.github.apis.GraphQLApiExample.FileChange;
+import com.examples.github.http.TokenPool;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional pre-step for large commits: lists the branch's files once and drops the changes that
+ * would not change anything, namely additions whose git blob SHA, computed locally, matches the
+ * file on the branch, and deletions of paths that are not there. Regenerating a directory in
+ * which only a few files differ then uploads just those files.
+ */
+public class TreeDiff {
+    private static final Logger logger = LoggerFactory.getLogger(TreeDiff.class);
+    private static final String GITHUB_API_BASE = "https://api.github.com";
+
+    private final TreeSnapshotCache snapshots;
+    private final AtomicLong kept = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong bytesSkipped = new AtomicLong();
+
+    public TreeDiff(TokenPool tokens, OkHttpClient transport) {
+        this(tokens, transport, GITHUB_API_BASE);
+    }
+
+    /**
+     * Creates a diff against another REST API root, such as GitHub Enterprise or a local
+     * stand-in server.
+     */
+    public TreeDiff(TokenPool tokens, OkHttpClient transport, String apiBase) {
+        this(new TreeSnapshotCache(tokens, transport, apiBase));
+    }
+
+    /**
+     * Creates a diff that shares file listings with other users of the cache.
+     */
+    public TreeDiff(TreeSnapshotCache snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Lists every file at the branch's current head. This always checks the head, then reuses
+     * the cached listing if the head has not moved.
+     */
+    public TreeSnapshot snapshot(String owner, String repo, String branch) throws IOException {
+        return snapshots.load(owner, repo, branch);
+    }
+
+    /**
+     * Returns, in order, the changes that differ from the snapshot. Changes whose content cannot
+     * be hashed up front (unknown size or a one-shot stream) are always kept.
+     */
+    public FileChange[] changedFiles(TreeSnapshot snapshot, FileChange[] fileChanges) throws IOException {
+        List<FileChange> changed = new ArrayList<>(fileChanges.length);
+        long skipped = 0;
+        for (FileChange change : fileChanges) {
+            String remoteSha = snapshot.blobSha(change.getPath());
+            if (change.isDelete()) {
+                if (remoteSha != null) {
+                    changed.add(change);
+                }
+                continue;
+            }
+            if (remoteSha != null && remoteSha.equals(change.getSource().blobSha())) {
+                skipped += change.getSource().length();
+            } else {
+                changed.add(change);
+            }
+        }
+
+        int unchanged = fileChanges.length - changed.size();
+        kept.addAndGet(changed.size());
+        dropped.addAndGet(unchanged);
+        bytesSkipped.addAndGet(skipped);
+        logger.info("{} of {} file changes already match {}", unchanged, fileChanges.length, snapshot.getCommitSha());
+        return changed.toArray(new FileChange[0]);
+    }
+
+    /** Changes that differed from the branch and were kept. */
+    public long getKept() { return kept.get(); }
+
+    /** Changes dropped because the branch already matched them. */
+    public long getDropped() { return dropped.get(); }
+
+    /** Content bytes of dropped additions, i.e. not uploaded. */
+    public long getBytesSkipped() { return bytesSkipped.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("kept=%d, dropped=%d, bytesSkipped=%d, snapshots: %s",
+            getKept(), getDropped(), getBytesSkipped(), snapshots);
+    }
+}
@@ -0,0 +1,133 @@
+package com.examples.github.apis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Branch tree indexes persisted under a directory, one file per repository and branch, so a
+ * restarted process can resume from its last listing instead of fetching the tree again.
+ *
+ * <p>A file holds the commit and root tree SHA it was listed at followed by a {@link PathIndex}
+ * (paths, blob SHAs and modes). Opening one memory-maps it: only the header and block offsets are
+ * read up front and the rest is paged in by the lookups that touch it, so opening takes about as
+ * long for a million files as for ten. Files are written to a temporary file and moved into place,
+ * so a reader never sees a partial index; one that is unreadable anyway is treated as missing.
+ */
+public final class TreeIndexStore {
+    private static final Logger logger = LoggerFactory.getLogger(TreeIndexStore.class);
+    private static final int MAGIC = 0x47485449; // "GHTI"
+    private static final int VERSION = 1;
+    private static final int SHA_BYTES = 20;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2 * SHA_BYTES;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final byte[] UNKNOWN_TREE = new byte[SHA_BYTES];
+
+    private final Path directory;
+
+    public TreeIndexStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The branch's persisted snapshot, or {@code null} if there is none or it cannot be read.
+     * The caller checks its commit SHA against the branch head before trusting it.
+     */
+    public TreeSnapshot open(String owner, String repo, String branch) {
+        Path file = file(owner, repo, branch);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Cannot open tree index {}: {}", file, e.getMessage());
+            return null;
+        }
+
+        try {
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a tree index of version " + VERSION);
+            }
+            byte[] commit = new byte[SHA_BYTES];
+            byte[] tree = new byte[SHA_BYTES];
+            buffer.get(commit).get(tree);
+            PathIndex index = PathIndex.read(buffer);
+            return new TreeSnapshot(HEX.formatHex(commit),
+                Arrays.equals(tree, UNKNOWN_TREE) ? null : HEX.formatHex(tree), index);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable tree index {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Persists the snapshot, local writes included, replacing the branch's previous file. The file
+     * is labelled with the snapshot's commit, so the snapshot must hold exactly that commit's
+     * files; {@link TreeSnapshotCache} only advances snapshots along their own commit chain.
+     */
+    public void save(String owner, String repo, String branch, TreeSnapshot snapshot) throws IOException {
+        Path file = file(owner, repo, branch);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            TreeSnapshot.Persisted persisted = snapshot.toPersisted();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .put(HEX.parseHex(persisted.commitSha()))
+                .put(persisted.treeSha() != null ? HEX.parseHex(persisted.treeSha()) : UNKNOWN_TREE)
+                .flip();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                persisted.index().writeTo(channel);
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Removes the branch's file, if any.
+     */
+    public void delete(String owner, String repo, String branch) throws IOException {
+        Files.deleteIfExists(file(owner, repo, branch));
+    }
+
+    /**
+     * {@code {owner}/{repo}/{branch}.tree} under the directory, each name URL-encoded so branch
+     * names with slashes map to a single file.
+     */
+    Path file(String owner, String repo, String branch) {
+        return directory.resolve(encode(owner)).resolve(encode(repo)).resolve(encode(branch) + ".tree");
+    }
+
+    private static String encode(String name) {
+        String encoded = URLEncoder.encode(name, StandardCharsets.UTF_8);
+        // "." and ".." survive URL encoding but are not usable as file names
+        return encoded.replace(".", "%2E");
+    }
+
+    @Override
+    public String toString() {
+        return directory.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.examples.github.apis;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * The files of a branch as of one commit: each path's blob SHA, from a recursive tree listing
+ * held in a compact {@link PathIndex}. A {@link TreeSnapshotCache} advances its snapshots past
+ * the client's own single-file commits; those changes are kept in a small overlay on top of the
+ * index, and the snapshot then no longer corresponds to a listed tree.
+ */
+public final class TreeSnapshot {
+    /** Overlay value marking a file deleted since the listing. */
+    private static final String DELETED = "";
+
+    private final PathIndex index;
+    private final Map<String, String> overlay = new ConcurrentHashMap<>();
+    private volatile String commitSha;
+    private volatile String treeSha;
+    private volatile int size;
+
+    TreeSnapshot(String commitSha, String treeSha, PathIndex index) {
+        this.commitSha = commitSha;
+        this.treeSha = treeSha;
+        this.index = index;
+        this.size = index.size();
+    }
+
+    public String getCommitSha() { return commitSha; }
+
+    /** Root tree SHA, or {@code null} once the snapshot has been advanced by a local write. */
+    public String getTreeSha() { return treeSha; }
+
+    /**
+     * Blob SHA of the file, or {@code null} if the commit has no file at that path.
+     */
+    public String blobSha(String path) {
+        String sha = overlay.get(path);
+        if (sha != null) {
+            return sha == DELETED ? null : sha;
+        }
+        return index.blobSha(path);
+    }
+
+    /**
+     * File mode of the file, such as {@value PathIndex#FILE_MODE}, or {@code null} if there is no
+     * such file. Files written locally keep the mode they were listed with.
+     */
+    public String mode(String path) {
+        if (blobSha(path) == null) {
+            return null;
+        }
+        String mode = index.mode(path);
+        return mode != null ? mode : PathIndex.FILE_MODE;
+    }
+
+    /** Number of files. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calls the action with every file matching the glob (see {@link PathIndex#forEachMatching})
+     * and its blob SHA: listed files in path order, then files written locally since.
+     */
+    public void forEachMatching(String glob, BiConsumer<String, String> action) {
+        index.forEachMatching(glob, (path, sha) -> {
+            if (!overlay.containsKey(path)) {
+                action.accept(path, sha);
+            }
+        });
+        Predicate<String> matcher = PathIndex.globMatcher(glob);
+        overlay.forEach((path, sha) -> {
+            if (sha != DELETED && matcher.test(path)) {
+                action.accept(path, sha);
+            }
+        });
+    }
+
+    /**
+     * Applies a commit that changed one file; a null blob SHA deletes it. The commit is applied
+     * only if its parent is the snapshot's commit: otherwise someone else committed in between,
+     * and the snapshot would claim to be at our commit while missing their changes.
+     *
+     * @return whether the commit was applied
+     */
+    synchronized boolean apply(String parentSha, String commitSha, String path, String blobSha) {
+        if (!this.commitSha.equals(parentSha)) {
+            return false;
+        }
+        boolean existed = blobSha(path) != null;
+        overlay.put(path, blobSha == null ? DELETED : blobSha);
+        if (existed != (blobSha != null)) {
+            size += existed ? -1 : 1;
+        }
+        this.treeSha = null;
+        this.commitSha = commitSha;
+        return true;
+    }
+
+    /** Whether local writes have been applied since the listing. */
+    boolean hasLocalWrites() {
+        return !overlay.isEmpty();
+    }
+
+    /**
+     * The commit and tree SHA together with the files as one index, local writes merged in,
+     * captured atomically so a concurrent write cannot pair the index with another commit.
+     */
+    synchronized Persisted toPersisted() {
+        if (overlay.isEmpty()) {
+            return new Persisted(commitSha, treeSha, index);
+        }
+        Map<String, String> changes = new HashMap<>();
+        overlay.forEach((path, sha) -> changes.put(path, sha == DELETED ? null : sha));
+        return new Persisted(commitSha, treeSha, index.withChanges(changes));
+    }
+
+    /**
+     * Exactly the files of {@code commitSha}; {@code treeSha} is {@code null} if unknown.
+     */
+    record Persisted(String commitSha, String treeSha, PathIndex index) {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("commit=%s, tree=%s, files=%d, index: %s", commitSha, treeSha, size(), index);
+    }
+}
@@ -0,0 +1,409 @@
+package com.examples.github.apis;
+
+import com.examples.github.http.GitHubTransport;
+import com.examples.github.http.TokenPool;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-branch {@link TreeSnapshot}s that answer "what is the blob SHA of this path" from memory,
+ * so updating many files costs one tree listing instead of a contents GET per file.
+ *
+ * <p>A snapshot is loaded with a single {@code git/trees/{sha}?recursive=1} call. GitHub
+ * truncates that listing for very large trees; the cache then lists the root alone and its
+ * subtrees in parallel. The client's own commits are applied to the snapshot as they succeed,
+ * other writers' are not: a write based on a stale SHA is rejected (409), and the caller then
+ * {@link #invalidate invalidates} the snapshot and looks the file up again. Snapshots are
+ * reloaded after {@code maxAge} regardless, which bounds how long an unchanged-content check
+ * can miss another writer's change.
+ *
+ * <p>Given a {@link TreeIndexStore}, every listing is also persisted, and a process that has no
+ * snapshot in memory, such as one just restarted, opens the persisted one instead of listing the
+ * tree again if the branch head still matches it. {@link #flush} persists local writes as well.
+ */
+public class TreeSnapshotCache {
+    private static final Logger logger = LoggerFactory.getLogger(TreeSnapshotCache.class);
+    private static final int DEFAULT_MAX_CONCURRENT_TREE_FETCHES = 8;
+
+    private final OkHttpClient client;
+    private final String apiBase;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Semaphore treeFetches;
+    private final TreeIndexStore store;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong listings = new AtomicLong();
+    private final AtomicLong treeRequests = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong restored = new AtomicLong();
+
+    public TreeSnapshotCache(TokenPool tokens, OkHttpClient transport, String apiBase) {
+        this(tokens, transport, apiBase, Duration.ofMinutes(1), DEFAULT_MAX_CONCURRENT_TREE_FETCHES, Clock.systemUTC());
+    }
+
+    public TreeSnapshotCache(TokenPool tokens, OkHttpClient transport, String apiBase, TreeIndexStore store) {
+        this(tokens, transport, apiBase, Duration.ofMinutes(1), DEFAULT_MAX_CONCURRENT_TREE_FETCHES,
+            Clock.systemUTC(), store);
+    }
+
+    public TreeSnapshotCache(TokenPool tokens, OkHttpClient transport, String apiBase,
+                             Duration maxAge, int maxConcurrentTreeFetches, Clock clock) {
+        this(tokens, transport, apiBase, maxAge, maxConcurrentTreeFetches, clock, null);
+    }
+
+    /**
+     * @param maxAge                     how long a snapshot is trusted after it was loaded
+     * @param maxConcurrentTreeFetches   subtree listings fetched at once for a truncated tree
+     * @param clock                      time source for expiry
+     * @param store                      where listings are persisted across restarts, or
+     *                                   {@code null} to keep them in memory only
+     */
+    public TreeSnapshotCache(TokenPool tokens, OkHttpClient transport, String apiBase,
+                             Duration maxAge, int maxConcurrentTreeFetches, Clock clock, TreeIndexStore store) {
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("maxAge must be positive");
+        }
+        if (maxConcurrentTreeFetches < 1) {
+            throw new IllegalArgumentException("maxConcurrentTreeFetches must be at least 1");
+        }
+        this.apiBase = apiBase;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.store = store;
+        this.treeFetches = new Semaphore(maxConcurrentTreeFetches);
+        this.client = GitHubTransport.clientBuilder(transport, tokens.authenticator(), chain -> {
+            Request request = chain.request().newBuilder()
+                .addHeader("Accept", "application/vnd.github+json")
+                .addHeader("X-GitHub-Api-Version", "2022-11-28")
+                .build();
+            return chain.proceed(request);
+        }).build();
+    }
+
+    /**
+     * Blob SHA of the file on the branch according to the snapshot, loading one if there is no
+     * fresh snapshot. Returns {@code null} if the snapshot has no such file.
+     */
+    public String blobSha(String owner, String repo, String branch, String path) throws IOException {
+        return snapshot(owner, repo, branch).blobSha(path);
+    }
+
+    /**
+     * The branch's snapshot, loaded if there is no fresh one.
+     */
+    public TreeSnapshot snapshot(String owner, String repo, String branch) throws IOException {
+        Entry entry = entries.get(new Key(owner, repo, branch));
+        if (entry != null && clock.millis() < entry.expiresAtMillis()) {
+            hits.incrementAndGet();
+            return entry.snapshot();
+        }
+        misses.incrementAndGet();
+        return load(owner, repo, branch);
+    }
+
+    /**
+     * Fetches the branch head and returns a snapshot of it, reusing the cached or persisted file
+     * listing if the head has not moved since.
+     * Endpoints: GET /repos/{owner}/{repo}/branches/{branch}, and unless reused
+     * GET /repos/{owner}/{repo}/git/trees/{tree_sha}?recursive=1
+     */
+    public TreeSnapshot load(String owner, String repo, String branch) throws IOException {
+        Key key = new Key(owner, repo, branch);
+        String[] head = getBranchHead(owner, repo, branch);
+        long expiresAt = clock.millis() + maxAge.toMillis();
+
+        Entry cached = entries.get(key);
+        if (cached != null && cached.snapshot().getCommitSha().equals(head[0])) {
+            entries.put(key, new Entry(cached.snapshot(), expiresAt));
+            return cached.snapshot();
+        }
+
+        if (cached == null && store != null) {
+            TreeSnapshot persisted = store.open(owner, repo, branch);
+            if (persisted != null && persisted.getCommitSha().equals(head[0])) {
+                restored.incrementAndGet();
+                logger.info("Opened {} persisted files of {}/{} at {}", persisted.size(), owner, repo, head[0]);
+                entries.put(key, new Entry(persisted, expiresAt));
+                return persisted;
+            }
+        }
+
+        TreeSnapshot snapshot = new TreeSnapshot(head[0], head[1], listFiles(owner, repo, head[1]));
+        listings.incrementAndGet();
+        logger.info("Listed {} files of {}/{} at {}", snapshot.size(), owner, repo, head[0]);
+        entries.put(key, new Entry(snapshot, expiresAt));
+        persist(key, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Applies the client's own commit of one file to the branch's snapshot, if there is one.
+     * If the commit's parent is not the snapshot's commit, another writer committed in between
+     * and the snapshot is invalidated instead.
+     *
+     * @param parentSha the commit's parent, or {@code null} if unknown
+     * @param blobSha   the file's new blob SHA, or {@code null} if it was deleted
+     */
+    public void recordWrite(String owner, String repo, String branch, String parentSha, String commitSha,
+                            String path, String blobSha) {
+        Entry entry = entries.get(new Key(owner, repo, branch));
+        if (entry != null && !entry.snapshot().apply(parentSha, commitSha, path, blobSha)) {
+            logger.info("{} is not based on the snapshot of {}/{} {}, dropping it", commitSha, owner, repo, branch);
+            invalidate(owner, repo, branch);
+        }
+    }
+
+    /**
+     * Drops the branch's snapshot, e.g. after a write based on it was rejected as stale, along
+     * with its persisted copy.
+     */
+    public void invalidate(String owner, String repo, String branch) {
+        if (entries.remove(new Key(owner, repo, branch)) != null) {
+            invalidations.incrementAndGet();
+        }
+        if (store != null) {
+            try {
+                store.delete(owner, repo, branch);
+            } catch (IOException e) {
+                logger.warn("Failed to delete persisted tree index of {}/{} {}: {}", owner, repo, branch, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Persists every snapshot that local writes have advanced since it was listed or opened, so
+     * that a restart resumes from the client's own last commit. A snapshot is only ever advanced
+     * by a write whose parent is its commit (see {@link #recordWrite}), so what is persisted is
+     * exactly the files of the commit it is labelled with. Call before shutting down; does
+     * nothing without a store.
+     */
+    public void flush() throws IOException {
+        if (store == null) {
+            return;
+        }
+        for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+            TreeSnapshot snapshot = entry.getValue().snapshot();
+            if (snapshot.hasLocalWrites()) {
+                Key key = entry.getKey();
+                store.save(key.owner(), key.repo(), key.branch(), snapshot);
+            }
+        }
+    }
+
+    /** Lookups answered by a fresh snapshot. */
+    public long getHits() { return hits.get(); }
+
+    /** Lookups that had to load a snapshot first. */
+    public long getMisses() { return misses.get(); }
+
+    /** File listings fetched, each one or more tree requests. */
+    public long getListings() { return listings.get(); }
+
+    public long getTreeRequests() { return treeRequests.get(); }
+
+    public long getInvalidations() { return invalidations.get(); }
+
+    /** Snapshots opened from the store instead of listed. */
+    public long getRestored() { return restored.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, listings=%d, restored=%d, treeRequests=%d, invalidations=%d",
+            getHits(), getMisses(), getListings(), getRestored(), getTreeRequests(), getInvalidations());
+    }
+
+    /**
+     * Persists a fresh listing. A failure only costs the next restart a listing, so it is logged
+     * rather than failing the lookup that triggered it.
+     */
+    private void persist(Key key, TreeSnapshot snapshot) {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.save(key.owner(), key.repo(), key.branch(), snapshot);
+        } catch (IOException e) {
+            logger.warn("Failed to persist tree index of {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Head commit SHA and its tree SHA.
+     */
+    private String[] getBranchHead(String owner, String repo, String branch) throws IOException {
+        Request request = new Request.Builder()
+            .url(String.format("%s/repos/%s/%s/branches/%s", apiBase, owner, repo, branch))
+            .get()
+            .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to get branch " + branch + ": " + response.code());
+            }
+            Map<String, JsonElement> fields = JsonFields.extract(response.body(), "commit.sha", "commit.commit.tree.sha");
+            return new String[] {
+                JsonFields.requireString(fields, "commit.sha"),
+                JsonFields.requireString(fields, "commit.commit.tree.sha")
+            };
+        }
+    }
+
+    /**
+     * Every file under the tree, indexed by path.
+     */
+    private PathIndex listFiles(String owner, String repo, String treeSha) throws IOException {
+        PathIndex.Builder files = PathIndex.builder();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            listInto(owner, repo, treeSha, "", files, executor);
+        }
+        return files.build();
+    }
+
+    /**
+     * Lists the tree recursively in one request if GitHub allows; if the listing comes back
+     * truncated, lists this level alone and each subtree in parallel. Entries of the truncated
+     * listing are real and are simply added again, the index keeping one of each.
+     */
+    private void listInto(String owner, String repo, String treeSha, String prefix,
+                          PathIndex.Builder files, ExecutorService executor) throws IOException {
+        if (!fetchTree(owner, repo, treeSha, true, prefix, files, null)) {
+            return;
+        }
+
+        logger.info("Listing of {}{} truncated, fetching its subtrees", prefix, treeSha);
+        Map<String, String> subtrees = new HashMap<>();
+        fetchTree(owner, repo, treeSha, false, prefix, files, subtrees);
+
+        List<Future<?>> pending = new ArrayList<>();
+        subtrees.forEach((path, sha) -> pending.add(executor.submit(() -> {
+            listInto(owner, repo, sha, prefix + path + "/", files, executor);
+            return null;
+        })));
+        for (Future<?> subtree : pending) {
+            try {
+                subtree.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while listing " + prefix);
+            }
+        }
+    }
+
+    /**
+     * Streams one tree listing, adding its blobs under {@code prefix} to {@code files} and, if
+     * {@code subtrees} is given, its trees to that map. The entries are read one at a time, so
+     * a listing of a hundred thousand entries is never held as a JSON tree.
+     * Endpoint: GET /repos/{owner}/{repo}/git/trees/{tree_sha}[?recursive=1]
+     *
+     * @return whether GitHub truncated the listing
+     */
+    private boolean fetchTree(String owner, String repo, String treeSha, boolean recursive, String prefix,
+                              PathIndex.Builder files, Map<String, String> subtrees) throws IOException {
+        Request request = new Request.Builder()
+            .url(String.format("%s/repos/%s/%s/git/trees/%s%s", apiBase, owner, repo, treeSha,
+                recursive ? "?recursive=1" : ""))
+            .get()
+            .build();
+
+        try {
+            treeFetches.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to fetch tree " + treeSha);
+        }
+        try (Response response = client.newCall(request).execute()) {
+            treeRequests.incrementAndGet();
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to get tree " + treeSha + ": " + response.code());
+            }
+
+            boolean truncated = false;
+            boolean sawTree = false;
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "tree" -> {
+                        sawTree = true;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            readEntry(reader, prefix, files, subtrees);
+                        }
+                        reader.endArray();
+                    }
+                    case "truncated" -> truncated = reader.nextBoolean();
+                    default -> reader.skipValue();
+                }
+            }
+            if (!sawTree) {
+                throw new IOException("Missing field in response: tree");
+            }
+            return truncated;
+        } finally {
+            treeFetches.release();
+        }
+    }
+
+    /**
+     * Reads one tree entry; submodules and other entry types are ignored.
+     */
+    private static void readEntry(JsonReader reader, String prefix, PathIndex.Builder files,
+                                  Map<String, String> subtrees) throws IOException {
+        String path = null;
+        String mode = null;
+        String type = null;
+        String sha = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "path" -> path = reader.nextString();
+                case "mode" -> mode = reader.nextString();
+                case "type" -> type = reader.nextString();
+                case "sha" -> sha = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if ("blob".equals(type)) {
+            files.add(prefix + path, sha, mode != null ? mode : PathIndex.FILE_MODE);
+        } else if ("tree".equals(type) && subtrees != null) {
+            subtrees.put(path, sha);
+        }
+    }
+
+    private record Key(String owner, String repo, String branch) {
+        @Override
+        public String toString() {
+            return owner + "/" + repo + " " + branch;
+        }
+    }
+
+    private record Entry(TreeSnapshot snapshot, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.examples.github.fake;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One request to {@link FakeGitHubServer}, with helpers for reading it and for answering with
+ * JSON plus the rate-limit headers of the budget it was charged to.
+ */
+final class FakeExchange {
+    private final HttpExchange exchange;
+    private final String resource;
+    private final String credential;
+    private FakeRateLimits.Snapshot rateLimit;
+
+    FakeExchange(HttpExchange exchange) {
+        this.exchange = exchange;
+        String path = path();
+        this.resource = path.equals("/graphql") ? "graphql" : path.startsWith("/search/") ? "search" : "core";
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        this.credential = authorization == null ? "anonymous" : authorization;
+    }
+
+    String method() {
+        return exchange.getRequestMethod();
+    }
+
+    /**
+     * Decoded request path.
+     */
+    String path() {
+        return exchange.getRequestURI().getPath();
+    }
+
+    String query(String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    String header(String name) {
+        return exchange.getRequestHeaders().getFirst(name);
+    }
+
+    String resource() {
+        return resource;
+    }
+
+    /**
+     * Budget this request is charged to: its resource and credential.
+     */
+    String rateLimitKey() {
+        return rateLimitKey(resource);
+    }
+
+    String rateLimitKey(String resource) {
+        return resource + ":" + credential;
+    }
+
+    void rateLimit(FakeRateLimits.Snapshot rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Request body parsed as a JSON object; an empty body gives an empty object.
+     */
+    JsonObject jsonBody() {
+        // Not closed here: the exchange closes the body once the response has been sent
+        Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+        JsonElement body = JsonParser.parseReader(reader);
+        return body.isJsonObject() ? body.getAsJsonObject() : new JsonObject();
+    }
+
+    void setHeader(String name, String value) {
+        exchange.getResponseHeaders().set(name, value);
+    }
+
+    void respond(int status, JsonElement json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        discardRequestBody();
+        setHeader("Content-Type", "application/json; charset=utf-8");
+        writeRateLimitHeaders();
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    void respondError(int status, String message) throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("message", message);
+        error.addProperty("documentation_url", "https://docs.github.com/rest");
+        respond(status, error);
+    }
+
+    /**
+     * Answers a matching conditional request; like GitHub, a 304 is not charged to the budget.
+     */
+    void notModified(FakeRateLimits limits, String etag) throws IOException {
+        if (limits != null && rateLimit != null) {
+            rateLimit = limits.release(rateLimitKey());
+        }
+        discardRequestBody();
+        setHeader("ETag", etag);
+        writeRateLimitHeaders();
+        exchange.sendResponseHeaders(304, -1);
+    }
+
+    private void writeRateLimitHeaders() {
+        if (rateLimit != null) {
+            setHeader("X-RateLimit-Limit", Integer.toString(rateLimit.limit()));
+            setHeader("X-RateLimit-Remaining", Integer.toString(rateLimit.remaining()));
+            setHeader("X-RateLimit-Used", Integer.toString(rateLimit.used()));
+            setHeader("X-RateLimit-Reset", Long.toString(rateLimit.resetEpochSeconds()));
+            setHeader("X-RateLimit-Resource", resource);
+        }
+    }
+
+    private void discardRequestBody() throws IOException {
+        exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,412 @@
+package com.examples.github.fake;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import okhttp3.OkHttpClient;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embeddable stand-in for the GitHub endpoints this project uses, for load and latency testing
+ * without a token or network access:
+ * <ul>
+ *   <li>{@code GET /repos/{owner}/{repo}}</li>
+ *   <li>{@code GET/PUT/DELETE /repos/{owner}/{repo}/contents/{path}}, with ETags</li>
+ *   <li>{@code GET /repos/{owner}/{repo}/branches/{branch}}</li>
+ *   <li>Git Data API blobs, trees (including recursive listings), commits and branch refs</li>
+ *   <li>{@code GET /rate_limit}</li>
+ *   <li>{@code POST /graphql}: the repository id/head query and {@code createCommitOnBranch}</li>
+ * </ul>
+ * Repositories are {@link FakeRepository in-memory git repositories}, created on first use unless
+ * disabled. Latency, jitter, injected failures and rate limits are configurable, and all
+ * randomness comes from one seeded generator so runs are repeatable.
+ *
+ * <pre>{@code
+ * try (FakeGitHubServer github = FakeGitHubServer.builder().latency(Duration.ofMillis(50)).start()) {
+ *     RestApiExample client = new RestApiExample(TokenPool.of("token"), transport, 4, github.apiUrl());
+ *     ...
+ * }
+ * }</pre>
+ */
+public final class FakeGitHubServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FakeGitHubServer.class);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HandshakeCertificates clientCertificates;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double failureRate;
+    private final int failureStatus;
+    private final FakeRateLimits rateLimits;
+    private final boolean autoCreateRepositories;
+    private final int treeListingLimit;
+    private final Random random;
+    private final RestHandler rest = new RestHandler(this);
+    private final GraphQLHandler graphql = new GraphQLHandler(this);
+    private final Map<String, FakeRepository> repositories = new ConcurrentHashMap<>();
+    private final AtomicLong nextRepositoryId = new AtomicLong(1);
+    private final AtomicInteger pendingFailures = new AtomicInteger();
+    private volatile int pendingFailureStatus;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private FakeGitHubServer(Builder builder, HttpServer server, HandshakeCertificates clientCertificates) {
+        this.server = server;
+        this.clientCertificates = clientCertificates;
+        this.latency = builder.latency;
+        this.jitter = builder.jitter;
+        this.failureRate = builder.failureRate;
+        this.failureStatus = builder.failureStatus;
+        this.rateLimits = builder.rateLimit > 0
+            ? new FakeRateLimits(builder.rateLimit, builder.rateLimitWindow, builder.clock)
+            : null;
+        this.autoCreateRepositories = builder.autoCreateRepositories;
+        this.treeListingLimit = builder.treeListingLimit;
+        this.random = new Random(builder.seed);
+
+        // Platform threads: the JDK server writes responses while holding a monitor, which would
+        // pin virtual threads and can starve clients running on virtual threads in the same process
+        this.executor = Executors.newFixedThreadPool(builder.threads,
+            Thread.ofPlatform().name("fake-github-", 0).daemon().factory());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        logger.info("Fake GitHub listening on {}", apiUrl());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts a server on a free port with no latency, failures or rate limits.
+     */
+    public static FakeGitHubServer start() throws IOException {
+        return builder().start();
+    }
+
+    /**
+     * REST API root, e.g. {@code http://127.0.0.1:4711}.
+     */
+    public String apiUrl() {
+        InetSocketAddress address = server.getAddress();
+        String scheme = clientCertificates != null ? "https" : "http";
+        return scheme + "://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    public String graphqlUrl() {
+        return apiUrl() + "/graphql";
+    }
+
+    /**
+     * Makes the client trust this server's self-signed certificate; a no-op for plain HTTP.
+     * The returned client shares the given client's connection pool and dispatcher.
+     */
+    public OkHttpClient trust(OkHttpClient client) {
+        if (clientCertificates == null) {
+            return client;
+        }
+        return client.newBuilder()
+            .sslSocketFactory(clientCertificates.sslSocketFactory(), clientCertificates.trustManager())
+            .build();
+    }
+
+    /**
+     * Returns the repository, creating it (with an empty {@code main} branch) if needed.
+     */
+    public FakeRepository repository(String owner, String name) {
+        return repositories.computeIfAbsent(owner + "/" + name,
+            key -> new FakeRepository(nextRepositoryId.getAndIncrement(), owner, name, "main"));
+    }
+
+    /**
+     * Makes the next {@code count} requests fail with the given status.
+     */
+    public void failNext(int count, int status) {
+        pendingFailureStatus = status;
+        pendingFailures.set(count);
+    }
+
+    public long getRequests() { return requests.get(); }
+    public long getInjectedFailures() { return injectedFailures.get(); }
+    public long getRateLimited() { return rateLimited.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    FakeRepository findRepository(String owner, String name) {
+        return autoCreateRepositories ? repository(owner, name) : repositories.get(owner + "/" + name);
+    }
+
+    FakeRateLimits rateLimits() {
+        return rateLimits;
+    }
+
+    int treeListingLimit() {
+        return treeListingLimit;
+    }
+
+    private void handle(HttpExchange httpExchange) {
+        requests.incrementAndGet();
+        try (httpExchange) {
+            FakeExchange exchange = new FakeExchange(httpExchange);
+            delay();
+
+            int failure = nextFailure();
+            if (failure > 0) {
+                injectedFailures.incrementAndGet();
+                if (failure == 403 || failure == 429) {
+                    // Looks like a secondary rate limit
+                    exchange.setHeader("Retry-After", "1");
+                    exchange.respondError(failure, "You have exceeded a secondary rate limit.");
+                } else {
+                    exchange.respondError(failure, "Injected failure");
+                }
+                return;
+            }
+
+            if (rateLimits != null && !exchange.path().equals("/rate_limit")) {
+                FakeRateLimits.Snapshot budget = rateLimits.tryAcquire(exchange.rateLimitKey());
+                exchange.rateLimit(budget);
+                if (!budget.granted()) {
+                    rateLimited.incrementAndGet();
+                    exchange.respondError(403, "API rate limit exceeded.");
+                    return;
+                }
+            }
+
+            if (exchange.path().equals("/graphql")) {
+                graphql.handle(exchange);
+            } else {
+                rest.handle(exchange);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Fake GitHub failed to handle {} {}: {}", httpExchange.getRequestMethod(),
+                httpExchange.getRequestURI(), e.toString());
+        }
+    }
+
+    private void delay() {
+        long millis = latency.toMillis();
+        if (!jitter.isZero()) {
+            synchronized (random) {
+                millis += (long) (random.nextDouble() * jitter.toMillis());
+            }
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Status to fail this request with, or 0 to serve it.
+     */
+    private int nextFailure() {
+        if (pendingFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return pendingFailureStatus;
+        }
+        if (failureRate > 0) {
+            synchronized (random) {
+                return random.nextDouble() < failureRate ? failureStatus : 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Runs a fake server until the process is stopped: {@code FakeGitHubServer [port]}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        FakeGitHubServer github = builder().port(port).start();
+        logger.info("REST API: {}  GraphQL: {}", github.apiUrl(), github.graphqlUrl());
+    }
+
+    /**
+     * Builder for {@link FakeGitHubServer}.
+     */
+    public static final class Builder {
+        private int port;
+        private boolean https;
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private double failureRate;
+        private int failureStatus = 502;
+        private int rateLimit;
+        private Duration rateLimitWindow = Duration.ofHours(1);
+        private Clock clock = Clock.systemUTC();
+        private boolean autoCreateRepositories = true;
+        private int treeListingLimit = 100_000;
+        private int threads = 64;
+        private long seed = 42;
+
+        private Builder() {
+        }
+
+        /**
+         * Port to listen on; 0 (the default) picks a free one.
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be between 0 and 65535");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Serves HTTPS with a self-signed certificate; see {@link FakeGitHubServer#trust}.
+         */
+        public Builder https(boolean https) {
+            this.https = https;
+            return this;
+        }
+
+        /**
+         * Fixed delay before every response.
+         */
+        public Builder latency(Duration latency) {
+            if (latency.isNegative()) {
+                throw new IllegalArgumentException("latency must not be negative");
+            }
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Additional delay drawn uniformly from {@code [0, jitter)} for every response.
+         */
+        public Builder jitter(Duration jitter) {
+            if (jitter.isNegative()) {
+                throw new IllegalArgumentException("jitter must not be negative");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Fails the given fraction of requests with {@code status} (403 and 429 are sent as
+         * secondary rate limits with {@code Retry-After}).
+         */
+        public Builder failureRate(double failureRate, int status) {
+            if (failureRate < 0 || failureRate > 1) {
+                throw new IllegalArgumentException("failureRate must be between 0 and 1");
+            }
+            this.failureRate = failureRate;
+            this.failureStatus = status;
+            return this;
+        }
+
+        /**
+         * Enforces a primary rate limit of {@code limit} requests per window, per credential and
+         * resource, and reports it in {@code X-RateLimit-*} headers. Without it no rate-limit
+         * headers are sent.
+         */
+        public Builder rateLimit(int limit, Duration window) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be at least 1");
+            }
+            this.rateLimit = limit;
+            this.rateLimitWindow = window;
+            return this;
+        }
+
+        /**
+         * Clock for rate-limit windows.
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Whether unknown repositories are created on first use (default) or answered with 404.
+         */
+        public Builder autoCreateRepositories(boolean autoCreateRepositories) {
+            this.autoCreateRepositories = autoCreateRepositories;
+            return this;
+        }
+
+        /**
+         * Entries after which a recursive tree listing is cut off and marked {@code truncated};
+         * GitHub's limit is 100,000.
+         */
+        public Builder treeListingLimit(int treeListingLimit) {
+            if (treeListingLimit < 1) {
+                throw new IllegalArgumentException("treeListingLimit must be at least 1");
+            }
+            this.treeListingLimit = treeListingLimit;
+            return this;
+        }
+
+        /**
+         * Requests handled at once (64 by default); with injected latency this bounds the
+         * throughput, so load tests with many concurrent callers should raise it.
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Seed for jitter and failure injection.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public FakeGitHubServer start() throws IOException {
+            // Without TCP_NODELAY, small responses sit behind Nagle's algorithm for ~40 ms
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+            if (!https) {
+                return new FakeGitHubServer(this, HttpServer.create(address, 0), null);
+            }
+
+            HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName(address.getAddress().getHostAddress())
+                .build();
+            HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+            HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+            HttpsServer server = HttpsServer.create(address, 0);
+            server.setHttpsConfigurator(new HttpsConfigurator(serverCertificates.sslContext()));
+            return new FakeGitHubServer(this, server, clientCertificates);
+        }
+    }
+}
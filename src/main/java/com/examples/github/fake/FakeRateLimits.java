@@ -0,0 +1,83 @@
+package com.examples.github.fake;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed-window request budgets per credential and resource, reported to clients through the
+ * {@code X-RateLimit-*} headers like GitHub's primary rate limit.
+ */
+final class FakeRateLimits {
+    private final int limit;
+    private final Duration window;
+    private final Clock clock;
+    private final Map<String, Window> windows = new HashMap<>();
+
+    FakeRateLimits(int limit, Duration window, Clock clock) {
+        this.limit = limit;
+        this.window = window;
+        this.clock = clock;
+    }
+
+    /**
+     * Charges one request to the budget if any is left.
+     */
+    synchronized Snapshot tryAcquire(String key) {
+        Window current = window(key);
+        boolean granted = current.used < limit;
+        if (granted) {
+            current.used++;
+        }
+        return current.snapshot(granted);
+    }
+
+    /**
+     * Refunds a request that does not count against the limit, such as a 304 response.
+     */
+    synchronized Snapshot release(String key) {
+        Window current = window(key);
+        if (current.used > 0) {
+            current.used--;
+        }
+        return current.snapshot(true);
+    }
+
+    synchronized Snapshot peek(String key) {
+        return window(key).snapshot(true);
+    }
+
+    private Window window(String key) {
+        long now = clock.millis();
+        Window current = windows.get(key);
+        if (current == null || now >= current.resetAtMillis) {
+            current = new Window(now + window.toMillis());
+            windows.put(key, current);
+        }
+        return current;
+    }
+
+    /**
+     * State of one budget at a point in time; {@code granted} tells whether the request that
+     * produced it was allowed.
+     */
+    record Snapshot(int limit, int used, long resetEpochSeconds, boolean granted) {
+        int remaining() {
+            return Math.max(0, limit - used);
+        }
+    }
+
+    private final class Window {
+        private final long resetAtMillis;
+        private int used;
+
+        Window(long resetAtMillis) {
+            this.resetAtMillis = resetAtMillis;
+        }
+
+        Snapshot snapshot(boolean granted) {
+            return new Snapshot(limit, used, (resetAtMillis + 999) / 1000, granted);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.examples.github.fake;
+
+import com.examples.github.git.GitHashes;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory git repository behind {@link FakeGitHubServer}: content-addressed blobs, trees and
+ * commits with real git object ids, and branches pointing at commits. Because the ids are real,
+ * blob SHAs computed locally (see {@link GitHashes}) match the ones the fake reports.
+ * Every operation is atomic.
+ */
+public final class FakeRepository {
+    public static final String FILE_MODE = "100644";
+    public static final String TREE_MODE = "40000";
+
+    private static final HexFormat HEX = HexFormat.of();
+    /** Git orders tree entries by name, comparing subtree names as if they ended in '/'. */
+    private static final Comparator<TreeEntry> GIT_ORDER =
+        Comparator.comparing(entry -> entry.isTree() ? entry.name() + "/" : entry.name());
+    private static final long EPOCH_SECONDS = 1_700_000_000L;
+
+    private final long id;
+    private final String owner;
+    private final String name;
+    private final String defaultBranch;
+    private final Map<String, byte[]> blobs = new HashMap<>();
+    private final Map<String, List<TreeEntry>> trees = new HashMap<>();
+    private final Map<String, Commit> commits = new HashMap<>();
+    private final Map<String, String> branches = new HashMap<>();
+
+    FakeRepository(long id, String owner, String name, String defaultBranch) {
+        this.id = id;
+        this.owner = owner;
+        this.name = name;
+        this.defaultBranch = defaultBranch;
+        String emptyTree = writeTree(new TreeMap<>());
+        branches.put(defaultBranch, writeCommit(emptyTree, List.of(), "Initial commit").sha());
+    }
+
+    public long getId() { return id; }
+    public String getOwner() { return owner; }
+    public String getName() { return name; }
+    public String getFullName() { return owner + "/" + name; }
+    public String getNodeId() { return "R_" + Long.toString(id, 36); }
+    public String getDefaultBranch() { return defaultBranch; }
+
+    /**
+     * Commit SHA the branch points at, or null if there is no such branch.
+     */
+    public synchronized String head(String branch) {
+        return branches.get(branch);
+    }
+
+    public synchronized void createBranch(String branch, String fromBranch) {
+        branches.put(branch, requireHead(fromBranch));
+    }
+
+    /**
+     * File content on the branch, or null if the branch or file does not exist.
+     */
+    public synchronized byte[] readFile(String branch, String path) {
+        String sha = fileSha(branch, path);
+        return sha == null ? null : blobs.get(sha);
+    }
+
+    /**
+     * Blob SHA of the file on the branch, or null if the branch or file does not exist.
+     */
+    public synchronized String fileSha(String branch, String path) {
+        String head = branches.get(branch);
+        if (head == null) {
+            return null;
+        }
+        String sha = commits.get(head).tree();
+        for (String segment : path.split("/")) {
+            List<TreeEntry> entries = trees.get(sha);
+            if (entries == null) {
+                return null;
+            }
+            sha = null;
+            for (TreeEntry entry : entries) {
+                if (entry.name().equals(segment)) {
+                    sha = entry.sha();
+                    break;
+                }
+            }
+            if (sha == null) {
+                return null;
+            }
+        }
+        return blobs.containsKey(sha) ? sha : null;
+    }
+
+    /**
+     * All files on the branch as path to blob SHA, in path order.
+     */
+    public synchronized NavigableMap<String, String> files(String branch) {
+        NavigableMap<String, String> files = new TreeMap<>();
+        flatten(commits.get(requireHead(branch)).tree(), "", files);
+        return files;
+    }
+
+    public synchronized byte[] blob(String sha) {
+        return blobs.get(sha);
+    }
+
+    public synchronized List<TreeEntry> tree(String sha) {
+        return trees.get(sha);
+    }
+
+    public synchronized Commit commit(String sha) {
+        return commits.get(sha);
+    }
+
+    /**
+     * Commits the changes on top of the branch head and moves the branch.
+     *
+     * @param expectedHead the head the caller based its changes on, or null to commit on top of
+     *                     whatever the head is
+     * @throws ConflictException if the branch has moved past {@code expectedHead}
+     */
+    public synchronized Commit commit(String branch, String expectedHead, Map<String, byte[]> additions,
+                                      Collection<String> deletions, String message) throws ConflictException {
+        String head = requireHead(branch);
+        if (expectedHead != null && !expectedHead.equals(head)) {
+            throw new ConflictException("Expected branch to point to \"" + expectedHead
+                + "\" but it did not. Pull and try again.");
+        }
+
+        NavigableMap<String, String> files = new TreeMap<>();
+        flatten(commits.get(head).tree(), "", files);
+        for (String path : deletions) {
+            files.remove(path);
+        }
+        additions.forEach((path, content) -> files.put(path, writeBlob(content)));
+
+        Commit commit = writeCommit(writeTree(files), List.of(head), message);
+        branches.put(branch, commit.sha());
+        return commit;
+    }
+
+    /**
+     * Contents API style single-file write: the caller must name the blob it is replacing
+     * ({@code null} for a new file), and the write fails if the branch holds a different one.
+     *
+     * @param content the new content, or null to delete the file
+     * @throws ConflictException if the file's current blob SHA is not {@code expectedFileSha}
+     */
+    public synchronized Commit writeFile(String branch, String path, byte[] content, String expectedFileSha,
+                                         String message) throws ConflictException {
+        String currentSha = fileSha(branch, path);
+        if (currentSha == null ? expectedFileSha != null : !currentSha.equals(expectedFileSha)) {
+            throw new ConflictException(path + " does not match " + expectedFileSha);
+        }
+        return content == null
+            ? commit(branch, null, Map.of(), List.of(path), message)
+            : commit(branch, null, Map.of(path, content), List.of(), message);
+    }
+
+    /**
+     * Stores a blob, as {@code POST git/blobs} does, and returns its SHA.
+     */
+    public synchronized String createBlob(byte[] content) {
+        return writeBlob(content);
+    }
+
+    /**
+     * Writes a tree that is {@code baseTree} (or empty, if null) with the given paths changed,
+     * as {@code POST git/trees} does. A null blob SHA removes the path.
+     *
+     * @throws IllegalArgumentException if the base tree or one of the blobs does not exist
+     */
+    public synchronized String createTree(String baseTree, Map<String, String> changes) {
+        NavigableMap<String, String> files = new TreeMap<>();
+        if (baseTree != null) {
+            if (!trees.containsKey(baseTree)) {
+                throw new IllegalArgumentException("base_tree " + baseTree + " is not a tree");
+            }
+            flatten(baseTree, "", files);
+        }
+        changes.forEach((path, sha) -> {
+            if (sha == null) {
+                files.remove(path);
+            } else if (!blobs.containsKey(sha)) {
+                throw new IllegalArgumentException("No blob " + sha + " for " + path);
+            } else {
+                files.put(path, sha);
+            }
+        });
+        return writeTree(files);
+    }
+
+    /**
+     * Writes a commit object without moving any branch, as {@code POST git/commits} does.
+     *
+     * @throws IllegalArgumentException if the tree or a parent does not exist
+     */
+    public synchronized Commit createCommit(String tree, List<String> parents, String message) {
+        if (!trees.containsKey(tree)) {
+            throw new IllegalArgumentException("No tree " + tree);
+        }
+        for (String parent : parents) {
+            if (!commits.containsKey(parent)) {
+                throw new IllegalArgumentException("No commit " + parent);
+            }
+        }
+        return writeCommit(tree, parents, message);
+    }
+
+    /**
+     * Points an existing branch at the commit, as {@code PATCH git/refs/heads/{branch}} does.
+     * Unless forced, only fast-forwards are allowed.
+     *
+     * @throws ConflictException if the move is not a fast-forward
+     */
+    public synchronized void updateBranch(String branch, String commitSha, boolean force) throws ConflictException {
+        String head = requireHead(branch);
+        if (!commits.containsKey(commitSha)) {
+            throw new IllegalArgumentException("No commit " + commitSha);
+        }
+        if (!force && !isAncestor(head, commitSha)) {
+            throw new ConflictException("Update is not a fast forward");
+        }
+        branches.put(branch, commitSha);
+    }
+
+    private boolean isAncestor(String ancestor, String commitSha) {
+        List<String> pending = new ArrayList<>(List.of(commitSha));
+        while (!pending.isEmpty()) {
+            String sha = pending.remove(pending.size() - 1);
+            if (sha.equals(ancestor)) {
+                return true;
+            }
+            pending.addAll(commits.get(sha).parents());
+        }
+        return false;
+    }
+
+    private String requireHead(String branch) {
+        String head = branches.get(branch);
+        if (head == null) {
+            throw new IllegalArgumentException("No branch " + branch + " in " + getFullName());
+        }
+        return head;
+    }
+
+    private String writeBlob(byte[] content) {
+        String sha = GitHashes.blobSha(content);
+        blobs.putIfAbsent(sha, content.clone());
+        return sha;
+    }
+
+    /**
+     * Writes the tree (and its subtrees) for files given relative to it.
+     */
+    private String writeTree(NavigableMap<String, String> files) {
+        List<TreeEntry> entries = new ArrayList<>();
+        Map<String, NavigableMap<String, String>> subtrees = new TreeMap<>();
+        files.forEach((path, sha) -> {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                entries.add(new TreeEntry(FILE_MODE, path, sha));
+            } else {
+                subtrees.computeIfAbsent(path.substring(0, slash), key -> new TreeMap<>())
+                    .put(path.substring(slash + 1), sha);
+            }
+        });
+        subtrees.forEach((dir, subtree) -> entries.add(new TreeEntry(TREE_MODE, dir, writeTree(subtree))));
+        entries.sort(GIT_ORDER);
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        for (TreeEntry entry : entries) {
+            serialized.writeBytes((entry.mode() + " " + entry.name() + "\0").getBytes(StandardCharsets.UTF_8));
+            serialized.writeBytes(HEX.parseHex(entry.sha()));
+        }
+        String sha = GitHashes.objectSha("tree", serialized.toByteArray());
+        trees.putIfAbsent(sha, List.copyOf(entries));
+        return sha;
+    }
+
+    private Commit writeCommit(String tree, List<String> parents, String message) {
+        // Deterministic timestamps: one second per commit
+        long time = EPOCH_SECONDS + commits.size();
+        String author = "Fake GitHub <fake@github.invalid> " + time + " +0000";
+
+        StringBuilder serialized = new StringBuilder("tree ").append(tree).append('\n');
+        parents.forEach(parent -> serialized.append("parent ").append(parent).append('\n'));
+        serialized.append("author ").append(author).append('\n')
+            .append("committer ").append(author).append("\n\n")
+            .append(message).append('\n');
+
+        String sha = GitHashes.objectSha("commit", serialized.toString().getBytes(StandardCharsets.UTF_8));
+        Commit commit = new Commit(sha, tree, List.copyOf(parents), message, time);
+        commits.put(sha, commit);
+        return commit;
+    }
+
+    private void flatten(String treeSha, String prefix, Map<String, String> files) {
+        for (TreeEntry entry : trees.get(treeSha)) {
+            if (entry.isTree()) {
+                flatten(entry.sha(), prefix + entry.name() + "/", files);
+            } else {
+                files.put(prefix + entry.name(), entry.sha());
+            }
+        }
+    }
+
+    /**
+     * An entry of a tree object.
+     */
+    public record TreeEntry(String mode, String name, String sha) {
+        public boolean isTree() {
+            return TREE_MODE.equals(mode);
+        }
+    }
+
+    /**
+     * A commit object; {@code time} is in epoch seconds.
+     */
+    public record Commit(String sha, String tree, List<String> parents, String message, long time) {
+    }
+
+    /**
+     * A write based on state that is no longer current.
+     */
+    public static final class ConflictException extends Exception {
+        public ConflictException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.examples.github.fake;
+
+import com.examples.github.fake.FakeRepository.Commit;
+import com.examples.github.fake.FakeRepository.ConflictException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GraphQL endpoint of {@link FakeGitHubServer}. There is no query engine: the operations the
+ * clients send are recognised by name, namely the repository id/head query and the
+ * {@code createCommitOnBranch} mutation. Like GitHub, errors come back with status 200 in an
+ * {@code errors} array.
+ */
+final class GraphQLHandler {
+    private static final String BRANCH_PREFIX = "refs/heads/";
+
+    private final FakeGitHubServer server;
+
+    GraphQLHandler(FakeGitHubServer server) {
+        this.server = server;
+    }
+
+    void handle(FakeExchange exchange) throws IOException {
+        if (!exchange.method().equals("POST")) {
+            exchange.respondError(405, "Method Not Allowed");
+            return;
+        }
+
+        JsonObject request = exchange.jsonBody();
+        String query = request.has("query") ? request.get("query").getAsString() : "";
+        JsonObject variables = request.has("variables") && request.get("variables").isJsonObject()
+            ? request.getAsJsonObject("variables")
+            : new JsonObject();
+
+        if (query.contains("createCommitOnBranch")) {
+            exchange.respond(200, createCommitOnBranch(variables.getAsJsonObject("input")));
+        } else if (query.contains("repository(")) {
+            exchange.respond(200, repository(variables));
+        } else {
+            exchange.respond(200, errors(null, "UNSUPPORTED", "Operation not supported by the fake server"));
+        }
+    }
+
+    /**
+     * {@code repository(owner, name) { id ref(qualifiedName) { target { oid } } }}.
+     */
+    private JsonObject repository(JsonObject variables) {
+        String owner = string(variables, "owner");
+        String name = variables.has("repo") ? string(variables, "repo") : string(variables, "name");
+        FakeRepository repository = owner == null || name == null ? null : server.findRepository(owner, name);
+        if (repository == null) {
+            return errors("repository", "NOT_FOUND",
+                "Could not resolve to a Repository with the name '" + owner + "/" + name + "'.");
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("id", repository.getNodeId());
+        String branch = variables.has("branch") ? string(variables, "branch") : string(variables, "qualifiedName");
+        String head = branch == null ? null : repository.head(stripPrefix(branch));
+        if (head == null) {
+            json.add("ref", JsonNull.INSTANCE);
+        } else {
+            JsonObject target = new JsonObject();
+            target.addProperty("oid", head);
+            JsonObject ref = new JsonObject();
+            ref.add("target", target);
+            json.add("ref", ref);
+        }
+        return data("repository", json);
+    }
+
+    private JsonObject createCommitOnBranch(JsonObject input) {
+        if (input == null || !input.has("branch") || !input.has("message") || !input.has("expectedHeadOid")) {
+            return errors("createCommitOnBranch", "INVALID", "branch, message and expectedHeadOid are required");
+        }
+        JsonObject branchInput = input.getAsJsonObject("branch");
+        String nameWithOwner = string(branchInput, "repositoryNameWithOwner");
+        String branch = stripPrefix(string(branchInput, "branchName"));
+        int slash = nameWithOwner == null ? -1 : nameWithOwner.indexOf('/');
+        FakeRepository repository = slash < 0
+            ? null
+            : server.findRepository(nameWithOwner.substring(0, slash), nameWithOwner.substring(slash + 1));
+        if (repository == null) {
+            return errors("createCommitOnBranch", "NOT_FOUND",
+                "Could not resolve to a Repository with the name '" + nameWithOwner + "'.");
+        }
+
+        Map<String, byte[]> additions = new LinkedHashMap<>();
+        List<String> deletions = new ArrayList<>();
+        JsonObject fileChanges = input.has("fileChanges") ? input.getAsJsonObject("fileChanges") : new JsonObject();
+        try {
+            for (JsonElement addition : array(fileChanges, "additions")) {
+                JsonObject file = addition.getAsJsonObject();
+                additions.put(string(file, "path"), Base64.getDecoder().decode(string(file, "contents")));
+            }
+        } catch (IllegalArgumentException e) {
+            return errors("createCommitOnBranch", "INVALID", "File contents must be Base64 encoded");
+        }
+        for (JsonElement deletion : array(fileChanges, "deletions")) {
+            deletions.add(string(deletion.getAsJsonObject(), "path"));
+        }
+
+        JsonObject message = input.getAsJsonObject("message");
+        String headline = string(message, "headline");
+        String body = string(message, "body");
+
+        Commit commit;
+        try {
+            commit = repository.commit(branch, string(input, "expectedHeadOid"), additions, deletions,
+                body == null ? headline : headline + "\n\n" + body);
+        } catch (ConflictException e) {
+            return errors("createCommitOnBranch", "STALE_DATA", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return errors("createCommitOnBranch", "NOT_FOUND",
+                "A ref named \"" + BRANCH_PREFIX + branch + "\" does not exist.");
+        }
+
+        JsonObject commitJson = new JsonObject();
+        commitJson.addProperty("oid", commit.sha());
+        commitJson.addProperty("url", server.apiUrl() + "/" + repository.getFullName() + "/commit/" + commit.sha());
+        JsonObject result = new JsonObject();
+        result.add("commit", commitJson);
+        return data("createCommitOnBranch", result);
+    }
+
+    private static JsonObject data(String field, JsonElement value) {
+        JsonObject data = new JsonObject();
+        data.add(field, value);
+        JsonObject json = new JsonObject();
+        json.add("data", data);
+        return json;
+    }
+
+    private static JsonObject errors(String field, String type, String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("type", type);
+        if (field != null) {
+            JsonArray path = new JsonArray();
+            path.add(field);
+            error.add("path", path);
+        }
+        error.addProperty("message", message);
+        JsonArray errors = new JsonArray();
+        errors.add(error);
+
+        JsonObject json = field != null ? data(field, JsonNull.INSTANCE) : new JsonObject();
+        json.add("errors", errors);
+        return json;
+    }
+
+    private static String stripPrefix(String branch) {
+        return branch != null && branch.startsWith(BRANCH_PREFIX) ? branch.substring(BRANCH_PREFIX.length()) : branch;
+    }
+
+    private static JsonArray array(JsonObject object, String name) {
+        JsonElement value = object.get(name);
+        return value != null && value.isJsonArray() ? value.getAsJsonArray() : new JsonArray();
+    }
+
+    private static String string(JsonObject object, String name) {
+        JsonElement value = object == null ? null : object.get(name);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
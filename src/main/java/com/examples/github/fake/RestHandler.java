@@ -0,0 +1,560 @@
+package com.examples.github.fake;
+
+import com.examples.github.fake.FakeRepository.Commit;
+import com.examples.github.fake.FakeRepository.ConflictException;
+import com.examples.github.fake.FakeRepository.TreeEntry;
+import com.examples.github.git.GitHashes;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST endpoints of {@link FakeGitHubServer}: repositories, branches, the Contents and Git Data
+ * APIs, and rate limits.
+ */
+final class RestHandler {
+    private final FakeGitHubServer server;
+
+    RestHandler(FakeGitHubServer server) {
+        this.server = server;
+    }
+
+    void handle(FakeExchange exchange) throws IOException {
+        String path = exchange.path();
+        String method = exchange.method();
+
+        if (path.equals("/rate_limit") && method.equals("GET")) {
+            rateLimit(exchange);
+            return;
+        }
+
+        if (path.startsWith("/repos/")) {
+            // owner, repo and (optionally) the endpoint and the rest of the path
+            String[] parts = path.substring("/repos/".length()).split("/", 4);
+            FakeRepository repository = parts.length >= 2 ? server.findRepository(parts[0], parts[1]) : null;
+            if (repository != null) {
+                if (parts.length == 2 && method.equals("GET")) {
+                    exchange.respond(200, repositoryJson(repository));
+                    return;
+                }
+                if (parts.length == 4 && parts[2].equals("contents")) {
+                    switch (method) {
+                        case "GET" -> getContent(exchange, repository, parts[3]);
+                        case "PUT" -> putContent(exchange, repository, parts[3]);
+                        case "DELETE" -> deleteContent(exchange, repository, parts[3]);
+                        default -> exchange.respondError(405, "Method Not Allowed");
+                    }
+                    return;
+                }
+                if (parts.length == 4 && parts[2].equals("git")) {
+                    gitData(exchange, repository, parts[3]);
+                    return;
+                }
+                if (parts.length == 4 && parts[2].equals("branches") && method.equals("GET")) {
+                    getBranch(exchange, repository, parts[3]);
+                    return;
+                }
+            }
+        }
+
+        exchange.respondError(404, "Not Found");
+    }
+
+    /**
+     * Git Data API: {@code git/blobs}, {@code git/trees}, {@code git/commits} and branch refs.
+     */
+    private void gitData(FakeExchange exchange, FakeRepository repository, String endpoint) throws IOException {
+        String method = exchange.method();
+        String[] parts = endpoint.split("/", 2);
+        String argument = parts.length == 2 ? parts[1] : null;
+
+        switch (parts[0]) {
+            case "blobs" -> {
+                if (argument == null && method.equals("POST")) {
+                    createBlob(exchange, repository);
+                } else if (argument != null && method.equals("GET")) {
+                    getBlob(exchange, repository, argument);
+                } else {
+                    exchange.respondError(405, "Method Not Allowed");
+                }
+            }
+            case "trees" -> {
+                if (argument == null && method.equals("POST")) {
+                    createTree(exchange, repository);
+                } else if (argument != null && method.equals("GET")) {
+                    getTree(exchange, repository, argument);
+                } else {
+                    exchange.respondError(405, "Method Not Allowed");
+                }
+            }
+            case "commits" -> {
+                if (argument == null && method.equals("POST")) {
+                    createCommit(exchange, repository);
+                } else if (argument != null && method.equals("GET")) {
+                    Commit commit = repository.commit(argument);
+                    if (commit == null) {
+                        exchange.respondError(404, "Not Found");
+                    } else {
+                        exchange.respond(200, commitJson(repository, commit));
+                    }
+                } else {
+                    exchange.respondError(405, "Method Not Allowed");
+                }
+            }
+            case "ref", "refs" -> {
+                if (argument == null || !argument.startsWith("heads/")) {
+                    exchange.respondError(404, "Not Found");
+                } else if (method.equals("GET")) {
+                    getRef(exchange, repository, argument.substring("heads/".length()));
+                } else if (method.equals("PATCH") && parts[0].equals("refs")) {
+                    updateRef(exchange, repository, argument.substring("heads/".length()));
+                } else {
+                    exchange.respondError(405, "Method Not Allowed");
+                }
+            }
+            default -> exchange.respondError(404, "Not Found");
+        }
+    }
+
+    /**
+     * POST /repos/{owner}/{repo}/git/blobs with {@code utf-8} or {@code base64} content.
+     */
+    private void createBlob(FakeExchange exchange, FakeRepository repository) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        if (!body.has("content")) {
+            exchange.respondError(422, "Invalid request.\n\n\"content\" is required.");
+            return;
+        }
+        byte[] content;
+        if ("base64".equals(stringOr(body, "encoding", "utf-8"))) {
+            try {
+                content = Base64.getMimeDecoder().decode(body.get("content").getAsString());
+            } catch (IllegalArgumentException e) {
+                exchange.respondError(422, "content is not valid Base64");
+                return;
+            }
+        } else {
+            content = body.get("content").getAsString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        String sha = repository.createBlob(content);
+        JsonObject json = new JsonObject();
+        json.addProperty("sha", sha);
+        json.addProperty("url", repositoryUrl(repository) + "/git/blobs/" + sha);
+        exchange.respond(201, json);
+    }
+
+    private void getBlob(FakeExchange exchange, FakeRepository repository, String sha) throws IOException {
+        byte[] content = repository.blob(sha);
+        if (content == null) {
+            exchange.respondError(404, "Not Found");
+            return;
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("sha", sha);
+        json.addProperty("size", content.length);
+        json.addProperty("url", repositoryUrl(repository) + "/git/blobs/" + sha);
+        json.addProperty("content", Base64.getEncoder().encodeToString(content));
+        json.addProperty("encoding", "base64");
+        exchange.respond(200, json);
+    }
+
+    /**
+     * POST /repos/{owner}/{repo}/git/trees. Entries name a blob by {@code sha}; a null
+     * {@code sha} deletes the path from {@code base_tree}. Inline {@code content} is not supported.
+     */
+    private void createTree(FakeExchange exchange, FakeRepository repository) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        if (!body.has("tree") || !body.get("tree").isJsonArray()) {
+            exchange.respondError(422, "Invalid request.\n\n\"tree\" is required.");
+            return;
+        }
+
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (JsonElement element : body.getAsJsonArray("tree")) {
+            JsonObject entry = element.getAsJsonObject();
+            String path = stringOr(entry, "path", null);
+            if (path == null || !entry.has("sha")) {
+                exchange.respondError(422, "Invalid tree entry: \"path\" and \"sha\" are required.");
+                return;
+            }
+            changes.put(path, stringOr(entry, "sha", null));
+        }
+
+        String sha;
+        try {
+            sha = repository.createTree(stringOr(body, "base_tree", null), changes);
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(422, e.getMessage());
+            return;
+        }
+        exchange.respond(201, treeJson(repository, sha, false));
+    }
+
+    /**
+     * GET /repos/{owner}/{repo}/git/trees/{tree_sha}; like GitHub, a commit SHA or branch name
+     * is accepted in place of the tree SHA, and {@code recursive} lists every nested entry.
+     */
+    private void getTree(FakeExchange exchange, FakeRepository repository, String treeIsh) throws IOException {
+        String sha = treeIsh;
+        if (repository.tree(sha) == null) {
+            String commitSha = repository.head(treeIsh) != null ? repository.head(treeIsh) : treeIsh;
+            Commit commit = repository.commit(commitSha);
+            sha = commit == null ? null : commit.tree();
+        }
+        if (sha == null) {
+            exchange.respondError(404, "Not Found");
+            return;
+        }
+        String recursive = exchange.query("recursive");
+        exchange.respond(200, treeJson(repository, sha, recursive != null && !recursive.equals("0")
+            && !recursive.equals("false")));
+    }
+
+    private void createCommit(FakeExchange exchange, FakeRepository repository) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        String tree = stringOr(body, "tree", null);
+        if (tree == null || !body.has("message")) {
+            exchange.respondError(422, "Invalid request.\n\n\"tree\" and \"message\" are required.");
+            return;
+        }
+        List<String> parents = new ArrayList<>();
+        if (body.has("parents")) {
+            body.getAsJsonArray("parents").forEach(parent -> parents.add(parent.getAsString()));
+        }
+
+        Commit commit;
+        try {
+            commit = repository.createCommit(tree, parents, body.get("message").getAsString());
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(422, e.getMessage());
+            return;
+        }
+        exchange.respond(201, commitJson(repository, commit));
+    }
+
+    private void getRef(FakeExchange exchange, FakeRepository repository, String branch) throws IOException {
+        String head = repository.head(branch);
+        if (head == null) {
+            exchange.respondError(404, "Not Found");
+            return;
+        }
+        exchange.respond(200, refJson(repository, branch, head));
+    }
+
+    /**
+     * PATCH /repos/{owner}/{repo}/git/refs/heads/{branch}; like GitHub, a move that is not a
+     * fast-forward is rejected with 422 unless {@code force} is set.
+     */
+    private void updateRef(FakeExchange exchange, FakeRepository repository, String branch) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        String sha = stringOr(body, "sha", null);
+        if (sha == null) {
+            exchange.respondError(422, "Invalid request.\n\n\"sha\" is required.");
+            return;
+        }
+        if (repository.head(branch) == null) {
+            exchange.respondError(422, "Reference does not exist");
+            return;
+        }
+
+        try {
+            repository.updateBranch(branch, sha, body.has("force") && body.get("force").getAsBoolean());
+        } catch (ConflictException e) {
+            exchange.respondError(422, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(422, "Object does not exist");
+            return;
+        }
+        exchange.respond(200, refJson(repository, branch, sha));
+    }
+
+    /**
+     * GET /repos/{owner}/{repo}/branches/{branch}: the head commit, including its tree.
+     */
+    private void getBranch(FakeExchange exchange, FakeRepository repository, String branch) throws IOException {
+        String head = repository.head(branch);
+        if (head == null) {
+            exchange.respondError(404, "Branch not found");
+            return;
+        }
+        Commit commit = repository.commit(head);
+
+        JsonObject commitJson = new JsonObject();
+        commitJson.addProperty("sha", commit.sha());
+        commitJson.add("commit", commitJson(repository, commit));
+        commitJson.addProperty("url", repositoryUrl(repository) + "/commits/" + commit.sha());
+
+        JsonObject json = new JsonObject();
+        json.addProperty("name", branch);
+        json.add("commit", commitJson);
+        json.addProperty("protected", false);
+        exchange.respond(200, json);
+    }
+
+    /**
+     * GET /repos/{owner}/{repo}/contents/{path}, answering {@code If-None-Match} with 304.
+     */
+    private void getContent(FakeExchange exchange, FakeRepository repository, String filePath) throws IOException {
+        String ref = exchange.query("ref") != null ? exchange.query("ref") : repository.getDefaultBranch();
+        String sha = repository.fileSha(ref, filePath);
+        if (sha == null) {
+            exchange.respondError(404, "Not Found");
+            return;
+        }
+
+        String etag = "\"" + sha + "\"";
+        String ifNoneMatch = exchange.header("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.replace("W/", "").equals(etag)) {
+            exchange.notModified(server.rateLimits(), etag);
+            return;
+        }
+
+        byte[] content = repository.blob(sha);
+        JsonObject json = contentJson(repository, filePath, sha, content.length);
+        json.addProperty("content", Base64.getEncoder().encodeToString(content));
+        json.addProperty("encoding", "base64");
+        exchange.setHeader("ETag", etag);
+        exchange.respond(200, json);
+    }
+
+    /**
+     * PUT /repos/{owner}/{repo}/contents/{path}: creates the file, or replaces it if the request
+     * names its current blob SHA.
+     */
+    private void putContent(FakeExchange exchange, FakeRepository repository, String filePath) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        if (!body.has("content") || !body.has("message")) {
+            exchange.respondError(422, "Invalid request.\n\n\"content\" and \"message\" are required.");
+            return;
+        }
+        String branch = stringOr(body, "branch", repository.getDefaultBranch());
+        String expectedSha = stringOr(body, "sha", null);
+        byte[] content;
+        try {
+            content = Base64.getMimeDecoder().decode(body.get("content").getAsString());
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(422, "content is not valid Base64");
+            return;
+        }
+
+        Commit commit;
+        try {
+            commit = repository.writeFile(branch, filePath, content, expectedSha, body.get("message").getAsString());
+        } catch (ConflictException e) {
+            if (expectedSha == null) {
+                exchange.respondError(422, "Invalid request.\n\n\"sha\" wasn't supplied.");
+            } else {
+                exchange.respondError(409, e.getMessage());
+            }
+            return;
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(404, "Branch " + branch + " not found");
+            return;
+        }
+
+        JsonObject json = new JsonObject();
+        json.add("content", contentJson(repository, filePath, GitHashes.blobSha(content), content.length));
+        json.add("commit", commitJson(repository, commit));
+        exchange.respond(expectedSha == null ? 201 : 200, json);
+    }
+
+    /**
+     * DELETE /repos/{owner}/{repo}/contents/{path}; the request must name the file's blob SHA.
+     */
+    private void deleteContent(FakeExchange exchange, FakeRepository repository, String filePath) throws IOException {
+        JsonObject body = exchange.jsonBody();
+        String branch = stringOr(body, "branch", repository.getDefaultBranch());
+        String expectedSha = stringOr(body, "sha", null);
+        if (expectedSha == null || !body.has("message")) {
+            exchange.respondError(422, "Invalid request.\n\n\"sha\" and \"message\" are required.");
+            return;
+        }
+        if (repository.fileSha(branch, filePath) == null) {
+            exchange.respondError(404, "Not Found");
+            return;
+        }
+
+        Commit commit;
+        try {
+            commit = repository.writeFile(branch, filePath, null, expectedSha, body.get("message").getAsString());
+        } catch (ConflictException e) {
+            exchange.respondError(409, e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            exchange.respondError(404, "Branch " + branch + " not found");
+            return;
+        }
+
+        JsonObject json = new JsonObject();
+        json.add("content", JsonNull.INSTANCE);
+        json.add("commit", commitJson(repository, commit));
+        exchange.respond(200, json);
+    }
+
+    private void rateLimit(FakeExchange exchange) throws IOException {
+        JsonObject resources = new JsonObject();
+        for (String resource : new String[] {"core", "search", "graphql", "integration_manifest"}) {
+            resources.add(resource, rateLimitJson(exchange.rateLimitKey(resource)));
+        }
+        JsonObject json = new JsonObject();
+        json.add("resources", resources);
+        json.add("rate", resources.get("core"));
+        exchange.respond(200, json);
+    }
+
+    private JsonObject rateLimitJson(String key) {
+        JsonObject json = new JsonObject();
+        FakeRateLimits limits = server.rateLimits();
+        if (limits == null) {
+            // Unlimited: report a full budget that resets in an hour
+            json.addProperty("limit", 5000);
+            json.addProperty("remaining", 5000);
+            json.addProperty("used", 0);
+            json.addProperty("reset", Instant.now().getEpochSecond() + 3600);
+        } else {
+            FakeRateLimits.Snapshot snapshot = limits.peek(key);
+            json.addProperty("limit", snapshot.limit());
+            json.addProperty("remaining", snapshot.remaining());
+            json.addProperty("used", snapshot.used());
+            json.addProperty("reset", snapshot.resetEpochSeconds());
+        }
+        return json;
+    }
+
+    private JsonObject repositoryJson(FakeRepository repository) {
+        JsonObject owner = new JsonObject();
+        owner.addProperty("login", repository.getOwner());
+        owner.addProperty("id", 1);
+        owner.addProperty("type", "User");
+
+        JsonObject json = new JsonObject();
+        json.addProperty("id", repository.getId());
+        json.addProperty("node_id", repository.getNodeId());
+        json.addProperty("name", repository.getName());
+        json.addProperty("full_name", repository.getFullName());
+        json.addProperty("private", false);
+        json.add("owner", owner);
+        json.addProperty("default_branch", repository.getDefaultBranch());
+        json.addProperty("url", repositoryUrl(repository));
+        json.addProperty("html_url", server.apiUrl() + "/" + repository.getFullName());
+        return json;
+    }
+
+    private JsonObject contentJson(FakeRepository repository, String filePath, String sha, long size) {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", filePath.substring(filePath.lastIndexOf('/') + 1));
+        json.addProperty("path", filePath);
+        json.addProperty("sha", sha);
+        json.addProperty("size", size);
+        json.addProperty("url", repositoryUrl(repository) + "/contents/" + filePath);
+        json.addProperty("git_url", repositoryUrl(repository) + "/git/blobs/" + sha);
+        json.addProperty("type", "file");
+        return json;
+    }
+
+    private JsonObject commitJson(FakeRepository repository, Commit commit) {
+        JsonObject author = new JsonObject();
+        author.addProperty("name", "Fake GitHub");
+        author.addProperty("email", "fake@github.invalid");
+        author.addProperty("date", Instant.ofEpochSecond(commit.time()).toString());
+
+        JsonObject tree = new JsonObject();
+        tree.addProperty("sha", commit.tree());
+        tree.addProperty("url", repositoryUrl(repository) + "/git/trees/" + commit.tree());
+
+        JsonArray parents = new JsonArray();
+        for (String parent : commit.parents()) {
+            JsonObject parentJson = new JsonObject();
+            parentJson.addProperty("sha", parent);
+            parentJson.addProperty("url", repositoryUrl(repository) + "/git/commits/" + parent);
+            parents.add(parentJson);
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("sha", commit.sha());
+        json.addProperty("url", repositoryUrl(repository) + "/git/commits/" + commit.sha());
+        json.add("author", author);
+        json.add("committer", author.deepCopy());
+        json.addProperty("message", commit.message());
+        json.add("tree", tree);
+        json.add("parents", parents);
+        return json;
+    }
+
+    /**
+     * A tree and its entries: direct ones, or with {@code recursive} every nested entry by full
+     * path, cut off at the server's listing limit like GitHub's {@code truncated} listings.
+     */
+    private JsonObject treeJson(FakeRepository repository, String sha, boolean recursive) {
+        JsonArray entries = new JsonArray();
+        boolean complete = addTreeEntries(repository, sha, "", recursive, entries);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("sha", sha);
+        json.addProperty("url", repositoryUrl(repository) + "/git/trees/" + sha);
+        json.add("tree", entries);
+        json.addProperty("truncated", !complete);
+        return json;
+    }
+
+    /**
+     * @return false if the listing limit was reached before all entries were added
+     */
+    private boolean addTreeEntries(FakeRepository repository, String sha, String prefix, boolean recursive,
+                                   JsonArray entries) {
+        for (TreeEntry entry : repository.tree(sha)) {
+            if (recursive && entries.size() >= server.treeListingLimit()) {
+                return false;
+            }
+            JsonObject json = new JsonObject();
+            json.addProperty("path", prefix + entry.name());
+            json.addProperty("mode", entry.mode());
+            json.addProperty("type", entry.isTree() ? "tree" : "blob");
+            json.addProperty("sha", entry.sha());
+            if (!entry.isTree()) {
+                json.addProperty("size", repository.blob(entry.sha()).length);
+            }
+            json.addProperty("url", repositoryUrl(repository) + (entry.isTree() ? "/git/trees/" : "/git/blobs/") + entry.sha());
+            entries.add(json);
+            if (recursive && entry.isTree()
+                && !addTreeEntries(repository, entry.sha(), prefix + entry.name() + "/", true, entries)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JsonObject refJson(FakeRepository repository, String branch, String sha) {
+        JsonObject object = new JsonObject();
+        object.addProperty("type", "commit");
+        object.addProperty("sha", sha);
+        object.addProperty("url", repositoryUrl(repository) + "/git/commits/" + sha);
+
+        JsonObject json = new JsonObject();
+        json.addProperty("ref", "refs/heads/" + branch);
+        json.addProperty("url", repositoryUrl(repository) + "/git/refs/heads/" + branch);
+        json.add("object", object);
+        return json;
+    }
+
+    private String repositoryUrl(FakeRepository repository) {
+        return server.apiUrl() + "/repos/" + repository.getFullName();
+    }
+
+    private static String stringOr(JsonObject body, String name, String fallback) {
+        JsonElement value = body.get(name);
+        return value == null || value.isJsonNull() ? fallback : value.getAsString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.examples.github.git;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes git object ids locally, so content can be compared with what GitHub reports
+ * without downloading it.
+ */
+public final class GitHashes {
+    private static final HexFormat HEX = HexFormat.of();
+
+    private GitHashes() {
+    }
+
+    /**
+     * Returns the git blob SHA-1 of the given content, i.e. {@code sha1("blob <len>\0" + bytes)}.
+     */
+    public static String blobSha(byte[] content) {
+        return objectSha("blob", content);
+    }
+
+    /**
+     * Returns the git blob SHA-1 of the UTF-8 encoding of the given text.
+     */
+    public static String blobSha(String content) {
+        return blobSha(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the git object id of an object of the given type ({@code blob}, {@code tree} or
+     * {@code commit}) with the given serialized content, i.e. {@code sha1("<type> <len>\0" + content)}.
+     */
+    public static String objectSha(String type, byte[] content) {
+        MessageDigest digest = sha1();
+        digest.update((type + " " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+        digest.update(content);
+        return HEX.formatHex(digest.digest());
+    }
+
+    /**
+     * Returns a SHA-1 digest already fed the header of a blob of the given length, for hashing
+     * content that is streamed rather than held in memory.
+     */
+    public static MessageDigest blobDigest(long length) {
+        MessageDigest digest = sha1();
+        digest.update(("blob " + length + "\0").getBytes(StandardCharsets.US_ASCII));
+        return digest;
+    }
+
+    static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+}
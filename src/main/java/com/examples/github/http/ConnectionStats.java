@@ -0,0 +1,84 @@
+package com.examples.github.http;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OkHttp event listener counting new connections, TLS handshakes and body bytes.
+ * Comparing {@link #getConnectionsOpened()} with {@link #getConnectionsAcquired()} shows
+ * how often calls were served by a warm pooled connection.
+ */
+public class ConnectionStats extends EventListener {
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong tlsHandshakes = new AtomicLong();
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong requestBodyBytes = new AtomicLong();
+    private final AtomicLong responseBodyBytes = new AtomicLong();
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectionsOpened.incrementAndGet();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        tlsHandshakes.incrementAndGet();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        connectionsAcquired.incrementAndGet();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestBodyBytes.addAndGet(byteCount);
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        responseBodyBytes.addAndGet(byteCount);
+    }
+
+    public long getConnectionsOpened() { return connectionsOpened.get(); }
+    public long getTlsHandshakes() { return tlsHandshakes.get(); }
+    public long getConnectionsAcquired() { return connectionsAcquired.get(); }
+
+    /** Request body bytes sent, before any transfer encoding. */
+    public long getRequestBodyBytes() { return requestBodyBytes.get(); }
+
+    /** Response body bytes received, as sent by the server (before decompression). */
+    public long getResponseBodyBytes() { return responseBodyBytes.get(); }
+
+    /**
+     * Fraction of acquired connections that did not require a new connect, in [0, 1].
+     */
+    public double getReuseRatio() {
+        long acquired = connectionsAcquired.get();
+        if (acquired == 0) {
+            return 0.0;
+        }
+        return Math.max(0L, acquired - connectionsOpened.get()) / (double) acquired;
+    }
+
+    public void reset() {
+        connectionsOpened.set(0);
+        tlsHandshakes.set(0);
+        connectionsAcquired.set(0);
+        requestBodyBytes.set(0);
+        responseBodyBytes.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connections=%d, tlsHandshakes=%d, acquired=%d, reuse=%.1f%%, sent=%d, received=%d",
+            getConnectionsOpened(), getTlsHandshakes(), getConnectionsAcquired(), getReuseRatio() * 100,
+            getRequestBodyBytes(), getResponseBodyBytes());
+    }
+}
@@ -0,0 +1,250 @@
+package com.examples.github.http;
+
+import com.examples.github.git.GitHashes;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conditional-request cache for GitHub GET calls.
+ * Remembers the ETag and body of successful responses and revalidates them with
+ * {@code If-None-Match}; GitHub answers unchanged resources with 304, which does not count
+ * against the primary rate limit, and the cached body is returned to the caller instead.
+ *
+ * <p>Entries are keyed by the full request URL, which for contents lookups encodes
+ * owner, repository, path and ref. The in-memory map is LRU-bounded by entry count and by total
+ * body bytes; when a directory is configured entries are also written there so they survive
+ * restarts.
+ *
+ * <p>Only small bodies are cached. A larger response, such as a contents response carrying a
+ * big file, is passed through to the caller still streaming, and recursive tree listings are
+ * never cached: those are held compactly by a tree snapshot instead.
+ */
+public class EtagCache implements Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(EtagCache.class);
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 256 * 1024;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Path directory;
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong tooLarge = new AtomicLong();
+
+    public EtagCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    public EtagCache(int maxEntries, Path directory) {
+        this(maxEntries, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRY_BYTES, directory);
+    }
+
+    /**
+     * @param maxEntries    entries kept in memory
+     * @param maxBytes      total body bytes kept in memory
+     * @param maxEntryBytes largest body that is cached; larger ones are streamed through uncached
+     * @param directory     optional directory for on-disk entries, or {@code null}
+     */
+    public EtagCache(int maxEntries, long maxBytes, long maxEntryBytes, Path directory) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (maxEntryBytes < 1 || maxBytes < maxEntryBytes) {
+            throw new IllegalArgumentException("maxEntryBytes must be positive and at most maxBytes");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.directory = directory;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method()) || request.header("If-None-Match") != null
+            || request.url().encodedPath().contains("/git/trees/")) {
+            return chain.proceed(request);
+        }
+
+        String key = request.url().toString();
+        Entry cached = lookup(key);
+        if (cached == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            request = request.newBuilder().header("If-None-Match", cached.etag).build();
+        }
+
+        Response response = chain.proceed(request);
+
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            notModified.incrementAndGet();
+            response.close();
+            return response.newBuilder()
+                .code(HttpURLConnection.HTTP_OK)
+                .message("OK")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(cached.body, MediaType.parse(cached.contentType)))
+                .build();
+        }
+
+        String etag = response.header("ETag");
+        if (response.code() != HttpURLConnection.HTTP_OK || etag == null || response.body() == null) {
+            return response;
+        }
+
+        long contentLength = response.body().contentLength();
+        if (contentLength > maxEntryBytes) {
+            tooLarge.incrementAndGet();
+            return response;
+        }
+        // Buffers at most one byte more than an entry may hold, leaving a larger body streaming
+        ResponseBody peeked = response.peekBody(maxEntryBytes + 1);
+        if (peeked.contentLength() > maxEntryBytes) {
+            tooLarge.incrementAndGet();
+            return response;
+        }
+
+        MediaType mediaType = response.body().contentType();
+        byte[] body = response.body().bytes();
+        store(key, new Entry(etag, mediaType != null ? mediaType.toString() : "application/json", body));
+        return response.newBuilder()
+            .body(ResponseBody.create(body, mediaType))
+            .build();
+    }
+
+    /** Requests for which a cached entry existed and a conditional request was sent. */
+    public long getHits() { return hits.get(); }
+
+    /** Requests for which nothing was cached. */
+    public long getMisses() { return misses.get(); }
+
+    /** Conditional requests that GitHub answered with 304 and were served from the cache. */
+    public long getNotModified() { return notModified.get(); }
+
+    /** Responses passed through uncached because their body exceeded the entry size limit. */
+    public long getTooLarge() { return tooLarge.get(); }
+
+    /** Body bytes currently held in memory. */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, notModified=%d, tooLarge=%d, bytes=%d",
+            getHits(), getMisses(), getNotModified(), getTooLarge(), bytes());
+    }
+
+    private Entry lookup(String key) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null || directory == null) {
+                return entry;
+            }
+        }
+
+        Entry entry = readFromDisk(key);
+        if (entry != null && entry.body.length <= maxEntryBytes) {
+            put(key, entry);
+        }
+        return entry;
+    }
+
+    private void store(String key, Entry entry) {
+        put(key, entry);
+        if (directory != null) {
+            writeToDisk(key, entry);
+        }
+    }
+
+    /**
+     * Adds the entry, evicting least recently used ones until both bounds hold.
+     */
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        bytes += entry.body.length - (previous != null ? previous.body.length : 0);
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+        }
+    }
+
+    private Entry readFromDisk(String key) {
+        try (InputStream in = Files.newInputStream(fileFor(key));
+             DataInputStream data = new DataInputStream(in)) {
+            String storedKey = data.readUTF();
+            if (!storedKey.equals(key)) {
+                return null;
+            }
+            String etag = data.readUTF();
+            String contentType = data.readUTF();
+            byte[] body = data.readAllBytes();
+            return new Entry(etag, contentType, body);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable ETag cache entry for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        try {
+            Files.createDirectories(directory);
+            Path target = fileFor(key);
+            Path temp = Files.createTempFile(directory, "etag", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(out)) {
+                data.writeUTF(key);
+                data.writeUTF(entry.etag);
+                data.writeUTF(entry.contentType);
+                data.write(entry.body);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not persist ETag cache entry for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(GitHashes.blobSha(key) + ".etag");
+    }
+
+    private record Entry(String etag, String contentType, byte[] body) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.examples.github.http;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory for the OkHttp transport shared by the GitHub clients.
+ * Clients derive their own instance with {@link #clientBuilder} from the shared base so they
+ * add their authentication while reusing one connection pool and dispatcher.
+ */
+public final class GitHubTransport {
+    private static final Logger logger = LoggerFactory.getLogger(GitHubTransport.class);
+    private static final ConnectionStats STATS = new ConnectionStats();
+
+    private static volatile OkHttpClient shared;
+    private static volatile TransportConfig sharedConfig;
+
+    private GitHubTransport() {
+    }
+
+    /**
+     * Returns the process-wide transport, creating it from system properties on first use.
+     */
+    public static OkHttpClient shared() {
+        OkHttpClient client = shared;
+        if (client == null) {
+            synchronized (GitHubTransport.class) {
+                client = shared;
+                if (client == null) {
+                    sharedConfig = TransportConfig.fromSystemProperties();
+                    client = create(sharedConfig, STATS);
+                    shared = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Replaces the process-wide transport. Clients constructed earlier keep the old one.
+     */
+    public static synchronized void configure(TransportConfig config) {
+        sharedConfig = config;
+        shared = create(config, STATS);
+    }
+
+    /**
+     * Connection statistics of the process-wide transport.
+     */
+    public static ConnectionStats stats() {
+        return STATS;
+    }
+
+    /**
+     * Conditional-request cache of the process-wide transport, or {@code null} if disabled.
+     */
+    public static EtagCache etagCache() {
+        shared();
+        return sharedConfig.getEtagCache();
+    }
+
+    /**
+     * Rate-limit scheduler of the process-wide transport, or {@code null} if disabled.
+     */
+    public static RateLimitScheduler rateLimitScheduler() {
+        shared();
+        return sharedConfig.getRateLimitScheduler();
+    }
+
+    /**
+     * Derives a client builder from the transport with the given authentication interceptors
+     * placed first, so the transport's own interceptors (rate-limit pacing, concurrency guard,
+     * ETag cache) see the final, authenticated request.
+     */
+    public static OkHttpClient.Builder clientBuilder(OkHttpClient transport, Interceptor... authentication) {
+        OkHttpClient.Builder builder = transport.newBuilder();
+        builder.interceptors().addAll(0, List.of(authentication));
+        return builder;
+    }
+
+    /**
+     * Creates a standalone transport with its own pool and dispatcher.
+     */
+    public static OkHttpClient create(TransportConfig config, ConnectionStats stats) {
+        logger.debug("Creating GitHub transport: {}", config);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+
+        ConnectionPool connectionPool = new ConnectionPool(
+            config.getMaxIdleConnections(), config.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+
+        List<Protocol> protocols = config.isHttp2()
+            ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+            : List.of(Protocol.HTTP_1_1);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(connectionPool)
+            .protocols(protocols)
+            .socketFactory(new NoDelaySocketFactory())
+            .eventListener(stats);
+
+        // Pacing runs before the concurrency guard so parked callers do not hold a slot
+        if (config.getRateLimitScheduler() != null) {
+            builder.addInterceptor(config.getRateLimitScheduler());
+        }
+        if (config.getMaxConcurrentCallsPerHost() > 0) {
+            builder.addInterceptor(new HostConcurrencyGuard(config.getMaxConcurrentCallsPerHost()));
+        }
+        if (config.getEtagCache() != null) {
+            builder.addInterceptor(config.getEtagCache());
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,114 @@
+package com.examples.github.http;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Interceptor limiting how many calls run against one host at the same time.
+ * Blocking calls bypass OkHttp's dispatcher limits, so with thousands of virtual threads
+ * this is what keeps us below GitHub's secondary rate limit on concurrent requests.
+ * Waiting callers are parked, which is cheap on virtual threads. A call holds its slot until
+ * its response body is closed, so bodies still streaming count against the limit.
+ */
+public class HostConcurrencyGuard implements Interceptor {
+    private final int maxConcurrentPerHost;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    public HostConcurrencyGuard(int maxConcurrentPerHost) {
+        if (maxConcurrentPerHost < 1) {
+            throw new IllegalArgumentException("maxConcurrentPerHost must be at least 1");
+        }
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Semaphore semaphore = permits.computeIfAbsent(chain.request().url().host(),
+            host -> new Semaphore(maxConcurrentPerHost, true));
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection slot");
+        }
+        Response response;
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException | Error e) {
+            semaphore.release();
+            throw e;
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            semaphore.release();
+            return response;
+        }
+        return response.newBuilder()
+            .body(new GuardedBody(body, semaphore))
+            .build();
+    }
+
+    public int getMaxConcurrentPerHost() {
+        return maxConcurrentPerHost;
+    }
+
+    /**
+     * Number of calls currently running against the host, including responses not yet closed.
+     */
+    public int inFlight(String host) {
+        Semaphore semaphore = permits.get(host);
+        return semaphore == null ? 0 : maxConcurrentPerHost - semaphore.availablePermits();
+    }
+
+    /**
+     * Response body that gives the host slot back, once, when it is closed.
+     */
+    private static final class GuardedBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        GuardedBody(ResponseBody delegate, Semaphore semaphore) {
+            this.delegate = delegate;
+            AtomicBoolean released = new AtomicBoolean();
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            semaphore.release();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
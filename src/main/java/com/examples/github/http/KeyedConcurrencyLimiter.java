@@ -0,0 +1,162 @@
+package com.examples.github.http;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking limiter for asynchronous operations, bounding how many run at once per key
+ * (for example per {@code owner/repo}). Operations over the limit are queued and started
+ * as earlier ones complete; no thread is blocked while waiting. Keys with nothing running or
+ * queued hold no state.
+ */
+public class KeyedConcurrencyLimiter {
+    private final int maxInFlight;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    public KeyedConcurrencyLimiter(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Starts the operation once fewer than {@code maxInFlight} operations for the key are running.
+     *
+     * @return a future completing with the operation's result
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            if (lane.acquire(() -> start(lane, operation, result))) {
+                return result;
+            }
+            // The lane went idle and was removed between the lookup and acquire
+        }
+    }
+
+    private <T> void start(Lane lane, Supplier<CompletableFuture<T>> operation, CompletableFuture<T> result) {
+        CompletableFuture<T> started;
+        try {
+            started = operation.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            lane.release();
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Number of operations currently running for the key.
+     */
+    public int inFlight(String key) {
+        Lane lane = lanes.get(key);
+        return lane == null ? 0 : lane.inFlight();
+    }
+
+    /**
+     * Slots of one key. Starts that have been given a slot are run in a loop by one thread at a
+     * time rather than from inside the completion that freed the slot, so operations completing
+     * synchronously do not nest one start per queued operation on the stack. A lane that goes
+     * idle is removed from the map.
+     */
+    private final class Lane {
+        private final String key;
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private final Queue<Runnable> ready = new ArrayDeque<>();
+        private int inFlight;
+        private boolean draining;
+        private boolean retired;
+
+        Lane(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return false if the lane has been removed and the caller must look up the key again
+         */
+        boolean acquire(Runnable start) {
+            synchronized (this) {
+                if (retired) {
+                    return false;
+                }
+                if (inFlight >= maxInFlight) {
+                    waiting.add(start);
+                    return true;
+                }
+                inFlight++;
+                ready.add(start);
+            }
+            drain();
+            return true;
+        }
+
+        void release() {
+            boolean idle;
+            synchronized (this) {
+                Runnable next = waiting.poll();
+                if (next != null) {
+                    // The released slot is handed straight to the next waiter
+                    ready.add(next);
+                } else {
+                    inFlight--;
+                }
+                idle = inFlight == 0;
+            }
+            if (idle) {
+                lanes.computeIfPresent(key, (k, lane) -> lane == this && retire() ? null : lane);
+            }
+            drain();
+        }
+
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    // The thread already draining picks it up when the current start returns
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = ready.poll();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                next.run();
+            }
+        }
+
+        private synchronized boolean retire() {
+            if (inFlight > 0) {
+                return false;
+            }
+            retired = true;
+            return true;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.examples.github.http;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor that paces requests using the {@code X-RateLimit-*} and {@code Retry-After}
+ * headers GitHub returns on every response.
+ *
+ * <p>State is kept per bucket: REST ({@code core}), {@code search} and {@code graphql} have
+ * separate budgets, and each credential has its own. Once a bucket's remaining budget drops
+ * below {@code pacingThreshold} of its limit, requests are spaced evenly over the time left
+ * until the reset. When the budget is exhausted or GitHub asks us to back off (403/429),
+ * callers are parked until the reset and the request is retried instead of failing. Requests
+ * whose body can only be written once are not retried; the caller gets the 403/429 response.
+ * Requests authenticated by a {@link TokenPool} that still has a token with budget are not
+ * parked either; the pool retries them with that token.
+ */
+public class RateLimitScheduler implements Interceptor {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitScheduler.class);
+    private static final Duration SECONDARY_LIMIT_BACKOFF = Duration.ofMinutes(1);
+    private static final String ENTERPRISE_API_PREFIX = "/api/v3";
+
+    private final Clock clock;
+    private final double pacingThreshold;
+    private final Duration maxWait;
+    private final int maxRetries;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong parkedRequests = new AtomicLong();
+    private final AtomicLong parkedMillis = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public RateLimitScheduler() {
+        this(Clock.systemUTC(), 0.2, Duration.ofMinutes(15), 3);
+    }
+
+    /**
+     * @param clock           time source, replaceable for tests against a fake server
+     * @param pacingThreshold fraction of the limit below which requests are spread out (0 disables pacing)
+     * @param maxWait         longest a caller is parked before the request fails instead
+     * @param maxRetries      retries of a request that was rejected by the rate limiter
+     */
+    public RateLimitScheduler(Clock clock, double pacingThreshold, Duration maxWait, int maxRetries) {
+        if (pacingThreshold < 0 || pacingThreshold > 1) {
+            throw new IllegalArgumentException("pacingThreshold must be between 0 and 1");
+        }
+        this.clock = clock;
+        this.pacingThreshold = pacingThreshold;
+        this.maxWait = maxWait;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Bucket bucket = buckets.computeIfAbsent(bucketKey(request), key -> new Bucket());
+
+        for (int attempt = 0; ; attempt++) {
+            awaitTurn(bucket, request);
+            Response response = chain.proceed(request);
+            boolean limited = bucket.update(response, clock.millis());
+
+            if (!limited || attempt >= maxRetries) {
+                return response;
+            }
+            TokenPool.Lease lease = request.tag(TokenPool.Lease.class);
+            if (lease != null && lease.canSwitch()) {
+                // The pool retries with another token rather than waiting for this one to reset
+                logger.debug("Rate limited on {} ({}), handing back to the token pool",
+                    request.url().encodedPath(), response.code());
+                return response;
+            }
+            if (request.body() != null && request.body().isOneShot()) {
+                // The body has been consumed; sending it again would commit empty or partial content
+                logger.warn("Rate limited on {} ({}), not retrying a one-shot request body",
+                    request.url().encodedPath(), response.code());
+                return response;
+            }
+            logger.warn("Rate limited on {} ({}), retrying after backoff", request.url().encodedPath(), response.code());
+            response.close();
+            retries.incrementAndGet();
+        }
+    }
+
+    /** Requests that had to wait before being sent. */
+    public long getParkedRequests() { return parkedRequests.get(); }
+
+    /** Total time requests spent waiting, in milliseconds. */
+    public long getParkedMillis() { return parkedMillis.get(); }
+
+    /** Requests re-sent after a 403/429 rate-limit response. */
+    public long getRetries() { return retries.get(); }
+
+    /**
+     * Last known remaining budget of the bucket serving the given resource ({@code core},
+     * {@code search} or {@code graphql}) for an {@code Authorization} header value, or -1 if unknown.
+     */
+    public long remaining(String resource, String authorization) {
+        Bucket bucket = buckets.get(resource + ":" + credentialId(authorization));
+        return bucket == null ? -1 : bucket.remaining();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("parked=%d (%d ms), retries=%d", getParkedRequests(), getParkedMillis(), getRetries());
+    }
+
+    /**
+     * Parks the current thread for the given duration. Overridable so tests can use a fake clock.
+     */
+    protected void park(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit");
+        }
+    }
+
+    private void awaitTurn(Bucket bucket, Request request) throws IOException {
+        long delay = bucket.reserve(clock.millis(), pacingThreshold);
+        if (delay <= 0) {
+            return;
+        }
+        if (delay > maxWait.toMillis()) {
+            throw new IOException("Rate limit exhausted for " + request.url().encodedPath()
+                + " until " + Instant.ofEpochMilli(clock.millis() + delay));
+        }
+
+        logger.debug("Parking request to {} for {} ms", request.url().encodedPath(), delay);
+        parkedRequests.incrementAndGet();
+        parkedMillis.addAndGet(delay);
+        park(delay);
+    }
+
+    private static String bucketKey(Request request) {
+        return resourceOf(request) + ":" + credentialId(request.header("Authorization"));
+    }
+
+    /**
+     * Rate-limit resource a request is charged against: {@code core}, {@code search} or {@code graphql}.
+     * GitHub Enterprise serves REST under {@code /api/v3}, so that prefix is dropped before the
+     * path is classified.
+     */
+    static String resourceOf(Request request) {
+        String path = request.url().encodedPath();
+        if (path.endsWith("/graphql")) {
+            return "graphql";
+        }
+        if (path.startsWith(ENTERPRISE_API_PREFIX + "/")) {
+            path = path.substring(ENTERPRISE_API_PREFIX.length());
+        }
+        if (path.startsWith("/search/")) {
+            return "search";
+        }
+        return "core";
+    }
+
+    private static String credentialId(String authorization) {
+        return authorization == null ? "anonymous" : Integer.toHexString(authorization.hashCode());
+    }
+
+    /**
+     * Whether the response is a 403/429 rate-limit rejection rather than a permission error.
+     */
+    static boolean isRateLimited(Response response) {
+        int code = response.code();
+        if (code == 429) {
+            return true;
+        }
+        return code == 403 && (response.header("Retry-After") != null
+            || parseLong(response.header("X-RateLimit-Remaining"), -1) == 0);
+    }
+
+    static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Budget state of one resource/credential pair.
+     */
+    private static final class Bucket {
+        private long limit = -1;
+        private long remaining = -1;
+        private long resetAtMillis;
+        private long blockedUntilMillis;
+        private long nextSlotMillis;
+
+        /**
+         * Reserves the next send slot and returns how long the caller must wait for it.
+         */
+        synchronized long reserve(long now, double pacingThreshold) {
+            if (blockedUntilMillis > now) {
+                return blockedUntilMillis - now;
+            }
+            if (remaining < 0 || limit <= 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return resetAtMillis > now ? resetAtMillis - now : 0;
+            }
+            if (remaining > limit * pacingThreshold || resetAtMillis <= now) {
+                remaining--;
+                return 0;
+            }
+
+            // Spread what is left evenly over the rest of the window
+            long interval = (resetAtMillis - now) / remaining;
+            long slot = Math.max(now, nextSlotMillis);
+            nextSlotMillis = slot + interval;
+            remaining--;
+            return slot - now;
+        }
+
+        /**
+         * Records the response's rate-limit headers.
+         *
+         * @return true if the response is a rate-limit rejection that should be retried
+         */
+        synchronized boolean update(Response response, long now) {
+            long headerLimit = parseLong(response.header("X-RateLimit-Limit"), -1);
+            long headerRemaining = parseLong(response.header("X-RateLimit-Remaining"), -1);
+            long headerReset = parseLong(response.header("X-RateLimit-Reset"), -1);
+            long retryAfter = parseLong(response.header("Retry-After"), -1);
+
+            if (headerLimit >= 0) {
+                limit = headerLimit;
+            }
+            if (headerRemaining >= 0) {
+                remaining = headerRemaining;
+            }
+            if (headerReset >= 0) {
+                long reset = headerReset * 1000;
+                if (reset != resetAtMillis) {
+                    nextSlotMillis = 0;
+                }
+                resetAtMillis = reset;
+            }
+            if (retryAfter >= 0) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, now + retryAfter * 1000);
+            }
+
+            int code = response.code();
+            if (code != 403 && code != 429) {
+                return false;
+            }
+            if (retryAfter >= 0) {
+                return true;
+            }
+            if (headerRemaining == 0) {
+                blockedUntilMillis = Math.max(blockedUntilMillis, resetAtMillis);
+                return true;
+            }
+            if (code == 429) {
+                // Secondary limit without guidance: GitHub asks to wait at least a minute
+                blockedUntilMillis = Math.max(blockedUntilMillis, now + SECONDARY_LIMIT_BACKOFF.toMillis());
+                return true;
+            }
+            // A plain 403 is a permission problem, not a rate limit
+            return false;
+        }
+
+        synchronized long remaining() {
+            return remaining;
+        }
+    }
+}
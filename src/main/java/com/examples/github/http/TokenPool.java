@@ -0,0 +1,260 @@
+package com.examples.github.http;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of GitHub credentials (PATs or installation tokens) used to spread load across several
+ * rate-limit budgets. Each request is given the token with the most remaining budget for its
+ * resource ({@code core}, {@code search} or {@code graphql}); exhausted tokens are skipped until
+ * their reset time. Budgets are learned from the {@code X-RateLimit-*} headers of responses.
+ * A request rejected by the rate limiter marks its token exhausted and is retried with another
+ * token while one has budget left.
+ */
+public class TokenPool {
+    private static final Logger logger = LoggerFactory.getLogger(TokenPool.class);
+
+    private static final long SECONDARY_LIMIT_BACKOFF_MILLIS = 60_000;
+
+    private final Clock clock;
+    private final Map<String, Map<String, Budget>> budgets = new LinkedHashMap<>();
+
+    public TokenPool(Collection<String> tokens) {
+        this(tokens, Clock.systemUTC());
+    }
+
+    public TokenPool(Collection<String> tokens, Clock clock) {
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("At least one token is required");
+        }
+        this.clock = clock;
+        for (String token : tokens) {
+            budgets.put(token, new HashMap<>());
+        }
+    }
+
+    public static TokenPool of(String... tokens) {
+        return new TokenPool(List.of(tokens));
+    }
+
+    /**
+     * Chooses a token for a request against the given resource.
+     * Tokens with unknown budget are tried first, then the one with the most remaining requests.
+     * If every token is exhausted, the one that resets first is returned and the rate-limit
+     * scheduler parks the request until then.
+     */
+    public synchronized String acquire(String resource) {
+        long now = clock.millis();
+        String best = null;
+        long bestRemaining = Long.MIN_VALUE;
+        String earliestReset = null;
+        long earliestResetMillis = Long.MAX_VALUE;
+
+        for (Map.Entry<String, Map<String, Budget>> entry : budgets.entrySet()) {
+            Budget budget = entry.getValue().computeIfAbsent(resource, key -> new Budget());
+            long remaining = budget.remaining(now);
+
+            if (remaining == 0) {
+                if (budget.resetAtMillis < earliestResetMillis) {
+                    earliestResetMillis = budget.resetAtMillis;
+                    earliestReset = entry.getKey();
+                }
+            } else if (remaining > bestRemaining) {
+                bestRemaining = remaining;
+                best = entry.getKey();
+            }
+        }
+
+        if (best == null) {
+            logger.warn("All {} tokens exhausted for {}, next reset in {} ms",
+                budgets.size(), resource, earliestResetMillis - now);
+            return earliestReset;
+        }
+
+        // Count the request now so concurrent callers spread over the tokens
+        budgets.get(best).get(resource).consume();
+        return best;
+    }
+
+    /**
+     * Updates a token's budget from the rate-limit headers of a response.
+     */
+    public synchronized void record(String token, String resource, Response response) {
+        Map<String, Budget> tokenBudgets = budgets.get(token);
+        if (tokenBudgets == null) {
+            return;
+        }
+        long remaining = RateLimitScheduler.parseLong(response.header("X-RateLimit-Remaining"), -1);
+        long reset = RateLimitScheduler.parseLong(response.header("X-RateLimit-Reset"), -1);
+        String reportedResource = response.header("X-RateLimit-Resource");
+
+        Budget budget = tokenBudgets.computeIfAbsent(
+            reportedResource != null ? reportedResource : resource, key -> new Budget());
+        if (remaining >= 0) {
+            budget.remaining = remaining;
+        }
+        if (reset >= 0) {
+            budget.resetAtMillis = reset * 1000;
+        }
+    }
+
+    /**
+     * Marks a token exhausted for the resource after a rate-limit rejection, until the reset or
+     * {@code Retry-After} time the response names (a minute if it names neither).
+     */
+    public synchronized void exhaust(String token, String resource, Response response) {
+        Map<String, Budget> tokenBudgets = budgets.get(token);
+        if (tokenBudgets == null) {
+            return;
+        }
+        long now = clock.millis();
+        long reset = RateLimitScheduler.parseLong(response.header("X-RateLimit-Reset"), -1);
+        long retryAfter = RateLimitScheduler.parseLong(response.header("Retry-After"), -1);
+        String reportedResource = response.header("X-RateLimit-Resource");
+
+        Budget budget = tokenBudgets.computeIfAbsent(
+            reportedResource != null ? reportedResource : resource, key -> new Budget());
+        long until = Math.max(reset >= 0 ? reset * 1000 : 0, retryAfter >= 0 ? now + retryAfter * 1000 : 0);
+        budget.remaining = 0;
+        budget.resetAtMillis = until > now ? until : now + SECONDARY_LIMIT_BACKOFF_MILLIS;
+    }
+
+    /**
+     * Whether a token other than the given one has budget left for the resource.
+     */
+    public synchronized boolean hasBudgetBesides(String token, String resource) {
+        long now = clock.millis();
+        for (Map.Entry<String, Map<String, Budget>> entry : budgets.entrySet()) {
+            if (entry.getKey().equals(token)) {
+                continue;
+            }
+            Budget budget = entry.getValue().get(resource);
+            if (budget == null || budget.remaining(now) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Last known remaining budget per (masked) token for the resource, -1 where unknown.
+     */
+    public synchronized Map<String, Long> remaining(String resource) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        budgets.forEach((token, tokenBudgets) -> {
+            Budget budget = tokenBudgets.get(resource);
+            result.put(mask(token), budget == null ? -1L : budget.remaining);
+        });
+        return result;
+    }
+
+    public synchronized List<String> tokens() {
+        return new ArrayList<>(budgets.keySet());
+    }
+
+    public int size() {
+        return tokens().size();
+    }
+
+    /**
+     * Interceptor that authenticates requests from the pool and feeds the responses back.
+     * A request rejected by the rate limiter marks its token exhausted and, unless its body can
+     * only be written once, is sent again with another token that has budget left; the rate-limit
+     * scheduler only parks it once no token has. Requests that already carry an
+     * {@code Authorization} header (as Kohsuke's do) keep it and are only recorded.
+     */
+    public Interceptor authenticator() {
+        return chain -> {
+            Request request = chain.request();
+            String resource = RateLimitScheduler.resourceOf(request);
+            String token = tokenOf(request.header("Authorization"));
+
+            if (token != null) {
+                Response response = chain.proceed(request);
+                record(token, resource, response);
+                return response;
+            }
+
+            boolean oneShot = request.body() != null && request.body().isOneShot();
+            for (int attempt = 1; ; attempt++) {
+                token = acquire(resource);
+                Response response = chain.proceed(request.newBuilder()
+                    .header("Authorization", "Bearer " + token)
+                    .tag(Lease.class, new Lease(this, token, resource))
+                    .build());
+                record(token, resource, response);
+
+                if (!RateLimitScheduler.isRateLimited(response)) {
+                    return response;
+                }
+                exhaust(token, resource, response);
+                if (oneShot || attempt >= size() || !hasBudgetBesides(token, resource)) {
+                    return response;
+                }
+                logger.info("Token {} rate limited on {}, retrying with another token",
+                    mask(token), request.url().encodedPath());
+                response.close();
+            }
+        };
+    }
+
+    /**
+     * Tag on requests authenticated from the pool, so the rate-limit scheduler can leave a
+     * rejected request to the pool instead of parking it on an exhausted token.
+     */
+    record Lease(TokenPool pool, String token, String resource) {
+        boolean canSwitch() {
+            return pool.hasBudgetBesides(token, resource);
+        }
+    }
+
+    private static String tokenOf(String authorization) {
+        if (authorization == null) {
+            return null;
+        }
+        int space = authorization.indexOf(' ');
+        return space < 0 ? authorization : authorization.substring(space + 1).trim();
+    }
+
+    private static String mask(String token) {
+        return token.length() <= 8 ? "****" : token.substring(0, 4) + "…" + token.substring(token.length() - 4);
+    }
+
+    /**
+     * Known budget of one token for one resource.
+     */
+    private static final class Budget {
+        private long remaining = -1;
+        private long resetAtMillis;
+
+        /**
+         * Remaining budget, treating unknown and already reset budgets as unlimited.
+         */
+        long remaining(long now) {
+            if (remaining < 0) {
+                return Long.MAX_VALUE;
+            }
+            if (remaining == 0 && resetAtMillis <= now) {
+                return Long.MAX_VALUE;
+            }
+            return remaining;
+        }
+
+        void consume() {
+            if (remaining > 0) {
+                remaining--;
+            }
+        }
+    }
+}
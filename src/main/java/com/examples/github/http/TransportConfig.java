@@ -0,0 +1,170 @@
+package com.examples.github.http;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the shared OkHttp transport.
+ * Defaults can be overridden with {@code github.http.*} system properties.
+ */
+public final class TransportConfig {
+    private final int maxIdleConnections;
+    private final Duration keepAlive;
+    private final int maxRequests;
+    private final int maxRequestsPerHost;
+    private final boolean http2;
+    private final int maxConcurrentCallsPerHost;
+    private final EtagCache etagCache;
+    private final RateLimitScheduler rateLimitScheduler;
+
+    private TransportConfig(Builder builder) {
+        this.maxIdleConnections = builder.maxIdleConnections;
+        this.keepAlive = builder.keepAlive;
+        this.maxRequests = builder.maxRequests;
+        this.maxRequestsPerHost = builder.maxRequestsPerHost;
+        this.http2 = builder.http2;
+        this.maxConcurrentCallsPerHost = builder.maxConcurrentCallsPerHost;
+        this.etagCache = builder.etagCache;
+        this.rateLimitScheduler = builder.rateLimitScheduler;
+    }
+
+    /**
+     * Reads the configuration from system properties, falling back to the builder defaults.
+     */
+    public static TransportConfig fromSystemProperties() {
+        Builder defaults = new Builder();
+        int etagCacheSize = Integer.getInteger("github.http.etagCacheSize", 1000);
+        String etagCacheDir = System.getProperty("github.http.etagCacheDir");
+        return new Builder()
+            .maxIdleConnections(Integer.getInteger("github.http.maxIdleConnections", defaults.maxIdleConnections))
+            .keepAlive(Duration.ofSeconds(Long.getLong("github.http.keepAliveSeconds", defaults.keepAlive.toSeconds())))
+            .maxRequests(Integer.getInteger("github.http.maxRequests", defaults.maxRequests))
+            .maxRequestsPerHost(Integer.getInteger("github.http.maxRequestsPerHost", defaults.maxRequestsPerHost))
+            .http2(Boolean.parseBoolean(System.getProperty("github.http.http2", String.valueOf(defaults.http2))))
+            .maxConcurrentCallsPerHost(Integer.getInteger("github.http.maxConcurrentCallsPerHost",
+                defaults.maxConcurrentCallsPerHost))
+            .etagCache(etagCacheSize > 0
+                ? new EtagCache(etagCacheSize,
+                    Long.getLong("github.http.etagCacheMaxBytes", EtagCache.DEFAULT_MAX_BYTES),
+                    Long.getLong("github.http.etagCacheMaxEntryBytes", EtagCache.DEFAULT_MAX_ENTRY_BYTES),
+                    etagCacheDir != null ? Path.of(etagCacheDir) : null)
+                : null)
+            .rateLimitScheduler(Boolean.parseBoolean(System.getProperty("github.http.rateLimitScheduler", "true"))
+                ? new RateLimitScheduler()
+                : null)
+            .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getMaxIdleConnections() { return maxIdleConnections; }
+    public Duration getKeepAlive() { return keepAlive; }
+    public int getMaxRequests() { return maxRequests; }
+    public int getMaxRequestsPerHost() { return maxRequestsPerHost; }
+    public boolean isHttp2() { return http2; }
+
+    /**
+     * Limit on concurrent calls per host including blocking ones, or 0 for no limit.
+     */
+    public int getMaxConcurrentCallsPerHost() { return maxConcurrentCallsPerHost; }
+
+    /**
+     * Conditional-request cache installed on the transport, or {@code null} if disabled.
+     */
+    public EtagCache getEtagCache() { return etagCache; }
+
+    /**
+     * Rate-limit pacing installed on the transport, or {@code null} if disabled.
+     */
+    public RateLimitScheduler getRateLimitScheduler() { return rateLimitScheduler; }
+
+    @Override
+    public String toString() {
+        return "TransportConfig{maxIdleConnections=" + maxIdleConnections
+            + ", keepAlive=" + keepAlive
+            + ", maxRequests=" + maxRequests
+            + ", maxRequestsPerHost=" + maxRequestsPerHost
+            + ", http2=" + http2
+            + ", maxConcurrentCallsPerHost=" + maxConcurrentCallsPerHost
+            + ", etagCache=" + (etagCache != null)
+            + ", rateLimitScheduler=" + (rateLimitScheduler != null) + "}";
+    }
+
+    /**
+     * Builder for {@link TransportConfig}.
+     */
+    public static final class Builder {
+        private int maxIdleConnections = 16;
+        private Duration keepAlive = Duration.ofMinutes(5);
+        private int maxRequests = 64;
+        private int maxRequestsPerHost = 8;
+        private boolean http2 = true;
+        private int maxConcurrentCallsPerHost = 32;
+        private EtagCache etagCache;
+        private RateLimitScheduler rateLimitScheduler;
+
+        private Builder() {
+        }
+
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must not be negative");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        public Builder keepAlive(Duration keepAlive) {
+            if (keepAlive.isNegative() || keepAlive.isZero()) {
+                throw new IllegalArgumentException("keepAlive must be positive");
+            }
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests must be at least 1");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be at least 1");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        public Builder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        public Builder maxConcurrentCallsPerHost(int maxConcurrentCallsPerHost) {
+            if (maxConcurrentCallsPerHost < 0) {
+                throw new IllegalArgumentException("maxConcurrentCallsPerHost must not be negative");
+            }
+            this.maxConcurrentCallsPerHost = maxConcurrentCallsPerHost;
+            return this;
+        }
+
+        public Builder etagCache(EtagCache etagCache) {
+            this.etagCache = etagCache;
+            return this;
+        }
+
+        public Builder rateLimitScheduler(RateLimitScheduler rateLimitScheduler) {
+            this.rateLimitScheduler = rateLimitScheduler;
+            return this;
+        }
+
+        public TransportConfig build() {
+            return new TransportConfig(this);
+        }
+    }
+}